@@ -5,6 +5,15 @@ import com.unisocial.models.Role;
 import com.unisocial.models.User;
 import com.unisocial.repositories.UserRepository;
 import com.unisocial.services.AnalyticsService;
+import com.unisocial.services.ChatClusterBridge;
+import com.unisocial.services.FeedStreamService;
+import com.unisocial.services.InteractionRecorder;
+import com.unisocial.services.MessageArchiver;
+import com.unisocial.services.MessageWriteBatcher;
+import com.unisocial.services.PresenceRegistry;
+import com.unisocial.services.RecentMessageCache;
+import com.unisocial.services.TimelineService;
+import com.unisocial.services.LikeCounterBuffer;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
@@ -23,11 +32,54 @@ public class AdminController {
     private final UserRepository userRepository;
     private final AnalyticsService analyticsService;
     private final com.unisocial.repositories.ClubRepository clubRepository;
-
-    public AdminController(UserRepository userRepository, AnalyticsService analyticsService, com.unisocial.repositories.ClubRepository clubRepository) {
+    private final LikeCounterBuffer likeCounterBuffer;
+    private final FeedStreamService feedStreamService;
+    private final TimelineService timelineService;
+    private final RecentMessageCache recentMessageCache;
+    private final MessageWriteBatcher messageWriteBatcher;
+    private final ChatClusterBridge chatClusterBridge;
+    private final PresenceRegistry presenceRegistry;
+    private final MessageArchiver messageArchiver;
+    private final InteractionRecorder interactionRecorder;
+
+    public AdminController(UserRepository userRepository, AnalyticsService analyticsService, com.unisocial.repositories.ClubRepository clubRepository,
+                           LikeCounterBuffer likeCounterBuffer, FeedStreamService feedStreamService,
+                           TimelineService timelineService, RecentMessageCache recentMessageCache,
+                           MessageWriteBatcher messageWriteBatcher, ChatClusterBridge chatClusterBridge,
+                           PresenceRegistry presenceRegistry, MessageArchiver messageArchiver,
+                           InteractionRecorder interactionRecorder) {
         this.userRepository = userRepository;
         this.analyticsService = analyticsService;
         this.clubRepository = clubRepository;
+        this.likeCounterBuffer = likeCounterBuffer;
+        this.feedStreamService = feedStreamService;
+        this.timelineService = timelineService;
+        this.recentMessageCache = recentMessageCache;
+        this.messageWriteBatcher = messageWriteBatcher;
+        this.chatClusterBridge = chatClusterBridge;
+        this.presenceRegistry = presenceRegistry;
+        this.messageArchiver = messageArchiver;
+        this.interactionRecorder = interactionRecorder;
+    }
+
+    /**
+     * GET /api/admin/metrics - In-memory subsystem metrics for this node
+     * Only accessible by platform admins
+     */
+    @GetMapping("/metrics")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> getMetrics() {
+        Map<String, Object> metrics = new HashMap<>();
+        metrics.put("likeCounter", likeCounterBuffer.getMetrics());
+        metrics.put("feedStream", feedStreamService.getMetrics());
+        metrics.put("timeline", timelineService.getMetrics());
+        metrics.put("chatCache", recentMessageCache.getMetrics());
+        metrics.put("chatWrites", messageWriteBatcher.getMetrics());
+        metrics.put("chatCluster", chatClusterBridge.getMetrics());
+        metrics.put("presence", presenceRegistry.getMetrics());
+        metrics.put("chatArchive", messageArchiver.getMetrics());
+        metrics.put("interactions", interactionRecorder.getMetrics());
+        return ResponseEntity.ok(metrics);
     }
 
     /**
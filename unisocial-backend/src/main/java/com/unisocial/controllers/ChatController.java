@@ -6,6 +6,8 @@ import com.unisocial.dto.ChatRoomResponse;
 import com.unisocial.dto.MessageResponse;
 import com.unisocial.repositories.UserRepository;
 import com.unisocial.services.ChatService;
+import com.unisocial.services.MessageSearchService;
+import com.unisocial.services.PresenceRegistry;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -18,12 +20,19 @@ import java.util.Map;
 @RequestMapping("/api/chat")
 public class ChatController {
 
+    private static final int MAX_PRESENCE_USERS = 200;
+
     private final ChatService chatService;
     private final UserRepository userRepository;
+    private final PresenceRegistry presenceRegistry;
+    private final MessageSearchService messageSearchService;
 
-    public ChatController(ChatService chatService, UserRepository userRepository) {
+    public ChatController(ChatService chatService, UserRepository userRepository, PresenceRegistry presenceRegistry,
+                          MessageSearchService messageSearchService) {
         this.chatService = chatService;
         this.userRepository = userRepository;
+        this.presenceRegistry = presenceRegistry;
+        this.messageSearchService = messageSearchService;
     }
 
     @PostMapping("/private/{receiverId}")
@@ -45,9 +54,34 @@ public class ChatController {
         }
     }
 
+    // Without paging parameters the full history is returned for existing clients
     @GetMapping("/{chatRoomId}/messages")
-    public ResponseEntity<List<MessageResponse>> getMessages(@PathVariable Long chatRoomId) {
-        return ResponseEntity.ok(chatService.getMessages(chatRoomId));
+    public ResponseEntity<?> getMessages(@PathVariable Long chatRoomId,
+                                         @RequestParam(required = false) Long before,
+                                         @RequestParam(required = false) Long after,
+                                         @RequestParam(required = false) Integer limit) {
+        try {
+            if (before == null && after == null && limit == null) {
+                return ResponseEntity.ok(chatService.getMessages(chatRoomId));
+            }
+            return ResponseEntity.ok(chatService.getMessagePage(chatRoomId, before, after, limit));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    // Ranked matches with highlighted snippets, e.g. /api/chat/5/search?q=slides+link&page=0&size=20
+    @GetMapping("/{chatRoomId}/search")
+    public ResponseEntity<?> searchMessages(@PathVariable Long chatRoomId,
+                                            @RequestParam String q,
+                                            @RequestParam(required = false) Integer page,
+                                            @RequestParam(required = false) Integer size) {
+        try {
+            Long userId = getCurrentUserId();
+            return ResponseEntity.ok(messageSearchService.search(chatRoomId, userId, q, page, size));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
     }
 
     @GetMapping("/rooms")
@@ -71,6 +105,29 @@ public class ChatController {
         }
     }
 
+    // Body is optional: {"messageId": 123}; without it everything in the room is marked read
+    @PostMapping("/{chatRoomId}/read")
+    public ResponseEntity<?> markRead(@PathVariable Long chatRoomId,
+                                      @RequestBody(required = false) Map<String, Long> body) {
+        try {
+            Long userId = getCurrentUserId();
+            Long messageId = body != null ? body.get("messageId") : null;
+            chatService.markRead(chatRoomId, userId, messageId);
+            return ResponseEntity.ok(Map.of("message", "Marked as read"));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    // Batch presence lookup served from memory, the same on every node, e.g. /api/chat/presence?userIds=1,2,3
+    @GetMapping("/presence")
+    public ResponseEntity<?> getPresence(@RequestParam List<Long> userIds) {
+        if (userIds.size() > MAX_PRESENCE_USERS) {
+            return ResponseEntity.badRequest().body(Map.of("error", "At most " + MAX_PRESENCE_USERS + " userIds per request"));
+        }
+        return ResponseEntity.ok(presenceRegistry.getPresence(userIds));
+    }
+
     private Long getCurrentUserId() {
         Authentication auth = SecurityContextHolder.getContext().getAuthentication();
         String email = auth.getName();
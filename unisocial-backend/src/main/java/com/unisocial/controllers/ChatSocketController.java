@@ -0,0 +1,58 @@
+package com.unisocial.controllers;
+
+import com.unisocial.services.ChatMembershipCache;
+import com.unisocial.services.PresenceRegistry;
+import org.springframework.messaging.handler.annotation.DestinationVariable;
+import org.springframework.messaging.handler.annotation.MessageMapping;
+import org.springframework.messaging.handler.annotation.Payload;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Controller;
+
+import java.security.Principal;
+import java.util.Map;
+
+/**
+ * STOMP handlers for signals that never touch the database: presence
+ * heartbeats (/app/presence/heartbeat) and typing state
+ * (/app/chat/{chatRoomId}/typing with {"typing": true|false}).
+ */
+@Controller
+public class ChatSocketController {
+
+    private final PresenceRegistry presenceRegistry;
+    private final ChatMembershipCache chatMembershipCache;
+
+    public ChatSocketController(PresenceRegistry presenceRegistry, ChatMembershipCache chatMembershipCache) {
+        this.presenceRegistry = presenceRegistry;
+        this.chatMembershipCache = chatMembershipCache;
+    }
+
+    @MessageMapping("/presence/heartbeat")
+    public void heartbeat(Principal principal) {
+        Long userId = userIdOf(principal);
+        if (userId != null) {
+            presenceRegistry.heartbeat(userId);
+        }
+    }
+
+    @MessageMapping("/chat/{chatRoomId}/typing")
+    public void typing(@DestinationVariable Long chatRoomId, @Payload(required = false) Map<String, Object> body,
+                       Principal principal) {
+        Long userId = userIdOf(principal);
+        if (userId == null) {
+            return;
+        }
+        // Cached membership check; throws for non-members
+        chatMembershipCache.requireMember(chatRoomId, userId);
+        boolean isTyping = body == null || !Boolean.FALSE.equals(body.get("typing"));
+        presenceRegistry.setTyping(chatRoomId, userId, isTyping);
+        presenceRegistry.heartbeat(userId);
+    }
+
+    private Long userIdOf(Principal principal) {
+        if (principal instanceof Authentication authentication && authentication.getDetails() instanceof Long userId) {
+            return userId;
+        }
+        return null;
+    }
+}
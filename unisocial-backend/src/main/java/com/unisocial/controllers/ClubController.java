@@ -4,9 +4,12 @@ import com.unisocial.dto.ClubResponse;
 import com.unisocial.dto.CreateClubRequest;
 import com.unisocial.dto.CreatePostRequest;
 import com.unisocial.dto.PostResponse;
+import com.unisocial.models.TargetType;
 import com.unisocial.models.User;
+import com.unisocial.models.UserAction;
 import com.unisocial.repositories.UserRepository;
 import com.unisocial.services.ClubService;
+import com.unisocial.services.InteractionRecorder;
 import com.unisocial.services.PostService;
 import jakarta.validation.Valid;
 import org.springframework.http.ResponseEntity;
@@ -24,11 +27,14 @@ public class ClubController {
     private final ClubService clubService;
     private final UserRepository userRepository;
     private final PostService postService;
+    private final InteractionRecorder interactionRecorder;
 
-    public ClubController(ClubService clubService, UserRepository userRepository, PostService postService) {
+    public ClubController(ClubService clubService, UserRepository userRepository, PostService postService,
+                          InteractionRecorder interactionRecorder) {
         this.clubService = clubService;
         this.userRepository = userRepository;
         this.postService = postService;
+        this.interactionRecorder = interactionRecorder;
     }
 
     @PostMapping
@@ -69,6 +75,7 @@ public class ClubController {
     public ResponseEntity<?> getClub(@PathVariable Long clubId) {
         try {
             ClubResponse response = clubService.getClub(clubId);
+            interactionRecorder.record(getCurrentUserIdOrNull(), TargetType.CLUB, clubId, UserAction.VIEW);
             return ResponseEntity.ok(response);
         } catch (RuntimeException e) {
             return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
@@ -93,9 +100,14 @@ public class ClubController {
     }
 
     @GetMapping("/{clubId}/posts")
-    public ResponseEntity<?> getClubPosts(@PathVariable Long clubId) {
+    public ResponseEntity<?> getClubPosts(@PathVariable Long clubId,
+                                          @RequestParam(name = "before", required = false) String before,
+                                          @RequestParam(name = "limit", required = false) Integer limit) {
         try {
-            List<PostResponse> posts = postService.getPostsByClub(clubId);
+            if (before != null || limit != null) {
+                return ResponseEntity.ok(postService.getClubPostsPage(clubId, before, limit, getCurrentUserIdOrNull()));
+            }
+            List<PostResponse> posts = postService.getPostsByClub(clubId, getCurrentUserIdOrNull());
             return ResponseEntity.ok(posts);
         } catch (RuntimeException e) {
             return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
@@ -188,6 +200,13 @@ public class ClubController {
             return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
         }
     }
-}
-
 
+    // GET endpoints are public; returns null for anonymous callers
+    private Long getCurrentUserIdOrNull() {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        if (auth == null || !auth.isAuthenticated()) {
+            return null;
+        }
+        return userRepository.findByEmail(auth.getName()).map(User::getUserId).orElse(null);
+    }
+}
@@ -2,9 +2,12 @@ package com.unisocial.controllers;
 
 import com.unisocial.dto.CreateEventRequest;
 import com.unisocial.dto.EventResponse;
+import com.unisocial.models.TargetType;
 import com.unisocial.models.User;
+import com.unisocial.models.UserAction;
 import com.unisocial.repositories.UserRepository;
 import com.unisocial.services.EventService;
+import com.unisocial.services.InteractionRecorder;
 import jakarta.validation.Valid;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
@@ -19,10 +22,13 @@ public class EventController {
 
     private final EventService eventService;
     private final UserRepository userRepository;
+    private final InteractionRecorder interactionRecorder;
 
-    public EventController(EventService eventService, UserRepository userRepository) {
+    public EventController(EventService eventService, UserRepository userRepository,
+                           InteractionRecorder interactionRecorder) {
         this.eventService = eventService;
         this.userRepository = userRepository;
+        this.interactionRecorder = interactionRecorder;
     }
 
     @PostMapping("/api/clubs/{clubId}/events")
@@ -77,6 +83,7 @@ public class EventController {
     public ResponseEntity<?> getEvent(@PathVariable Long eventId) {
         try {
             EventResponse response = eventService.getEvent(eventId);
+            interactionRecorder.record(getCurrentUserIdOrNull(), TargetType.EVENT, eventId, UserAction.VIEW);
             return ResponseEntity.ok(response);
         } catch (RuntimeException e) {
             return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
@@ -107,7 +114,13 @@ public class EventController {
         }
         return ResponseEntity.ok(events);
     }
-}
-
-
 
+    // GET endpoints are public; returns null for anonymous callers
+    private Long getCurrentUserIdOrNull() {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        if (auth == null || !auth.isAuthenticated()) {
+            return null;
+        }
+        return userRepository.findByEmail(auth.getName()).map(User::getUserId).orElse(null);
+    }
+}
@@ -6,17 +6,25 @@ import com.unisocial.dto.PostResponse;
 import com.unisocial.dto.CommentResponse;
 import com.unisocial.dto.LikeResponse;
 import com.unisocial.models.MediaType;
+import com.unisocial.models.TargetType;
 import com.unisocial.models.User;
+import com.unisocial.models.UserAction;
 import com.unisocial.repositories.UserRepository;
 import com.unisocial.services.PostService;
 import com.unisocial.services.CommentService;
+import com.unisocial.services.FeedStreamService;
+import com.unisocial.services.InteractionRecorder;
 import com.unisocial.services.LikeService;
+import com.unisocial.services.PostPurgeService;
 import jakarta.validation.Valid;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.util.StringUtils;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.List;
 import java.util.Map;
@@ -29,13 +37,21 @@ public class PostController {
     private final UserRepository userRepository;
     private final CommentService commentService;
     private final LikeService likeService;
+    private final FeedStreamService feedStreamService;
+    private final PostPurgeService postPurgeService;
+    private final InteractionRecorder interactionRecorder;
 
     public PostController(PostService postService, UserRepository userRepository, 
-                         CommentService commentService, LikeService likeService) {
+                         CommentService commentService, LikeService likeService,
+                         FeedStreamService feedStreamService, PostPurgeService postPurgeService,
+                         InteractionRecorder interactionRecorder) {
         this.postService = postService;
         this.userRepository = userRepository;
         this.commentService = commentService;
         this.likeService = likeService;
+        this.feedStreamService = feedStreamService;
+        this.postPurgeService = postPurgeService;
+        this.interactionRecorder = interactionRecorder;
     }
 
     @PostMapping
@@ -78,12 +94,62 @@ public class PostController {
 
     @GetMapping("/user/{userId}")
     public ResponseEntity<List<PostResponse>> getUserPosts(@PathVariable String userId) {
-        return ResponseEntity.ok(postService.getPostsByUser(userId));
+        return ResponseEntity.ok(postService.getPostsByUser(userId, getCurrentUserIdOrNull()));
     }
 
     @GetMapping("/feed")
-    public ResponseEntity<List<PostResponse>> getFeed() {
-        return ResponseEntity.ok(postService.getFeed());
+    public ResponseEntity<?> getFeed(@RequestParam(name = "before", required = false) String before,
+                                     @RequestParam(name = "limit", required = false) Integer limit,
+                                     @RequestParam(name = "sort", required = false) String sort) {
+        if ("hot".equalsIgnoreCase(sort)) {
+            try {
+                return ResponseEntity.ok(postService.getHotFeedPage(before, limit, getCurrentUserIdOrNull()));
+            } catch (RuntimeException e) {
+                return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+            }
+        }
+        // Unparameterised calls keep returning the full list for existing clients
+        if (before == null && limit == null) {
+            return ResponseEntity.ok(postService.getFeed(getCurrentUserIdOrNull()));
+        }
+        try {
+            return ResponseEntity.ok(postService.getFeedPage(before, limit, getCurrentUserIdOrNull()));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * Server-Sent Events stream of lightweight "new post" notifications, including
+     * posts created on other nodes. Clients fetch the delta page on notification
+     * instead of polling the full feed. Returns 503 when this node is at capacity.
+     * The emitter is returned as such, not wrapped in a ResponseEntity, so Spring
+     * streams it rather than serializing it as a JSON body.
+     */
+    @GetMapping("/feed/stream")
+    public SseEmitter streamFeed() {
+        try {
+            return feedStreamService.subscribe();
+        } catch (RuntimeException e) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, e.getMessage());
+        }
+    }
+
+    /**
+     * Home timeline: posts by the caller's clubs and club peers, newest first.
+     */
+    @GetMapping("/timeline")
+    public ResponseEntity<?> getTimeline(@RequestParam(required = false) String before,
+                                         @RequestParam(required = false) Integer limit) {
+        try {
+            Long userId = getCurrentUserIdOrNull();
+            if (userId == null) {
+                return ResponseEntity.status(403).body(Map.of("error", "Not authenticated"));
+            }
+            return ResponseEntity.ok(postService.getTimelinePage(userId, before, limit));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
     }
 
     // Comment endpoints
@@ -110,6 +176,8 @@ public class PostController {
     @GetMapping("/{postId}/comments")
     public ResponseEntity<List<CommentResponse>> getComments(@PathVariable Long postId) {
         List<CommentResponse> comments = commentService.getCommentsForPost(postId);
+        // Opening a post's thread is the post detail view
+        interactionRecorder.record(getCurrentUserIdOrNull(), TargetType.POST, postId, UserAction.VIEW);
         return ResponseEntity.ok(comments);
     }
 
@@ -150,21 +218,7 @@ public class PostController {
 
     @GetMapping("/{postId}/likes")
     public ResponseEntity<LikeResponse> getLikes(@PathVariable Long postId) {
-        Long currentUserId = null;
-        try {
-            Authentication auth = SecurityContextHolder.getContext().getAuthentication();
-            if (auth != null && auth.isAuthenticated()) {
-                String email = auth.getName();
-                User user = userRepository.findByEmail(email).orElse(null);
-                if (user != null) {
-                    currentUserId = user.getUserId();
-                }
-            }
-        } catch (Exception e) {
-            // User not authenticated, continue with currentUserId = null
-        }
-
-        LikeResponse response = likeService.countLikes(postId, currentUserId);
+        LikeResponse response = likeService.countLikes(postId, getCurrentUserIdOrNull());
         return ResponseEntity.ok(response);
     }
 
@@ -181,7 +235,12 @@ public class PostController {
             }
             
             // Delete the post (will check ownership in service)
-            postService.deletePost(postId, user.getUserId());
+            boolean async = postService.deletePost(postId, user.getUserId());
+            if (async) {
+                return ResponseEntity.accepted().body(Map.of(
+                        "message", "Post removed; likes and comments are being deleted",
+                        "postId", postId));
+            }
             return ResponseEntity.ok(Map.of("message", "Post deleted successfully"));
         } catch (RuntimeException e) {
             return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
@@ -189,4 +248,31 @@ public class PostController {
             return ResponseEntity.status(500).body(Map.of("error", "Failed to delete post"));
         }
     }
+
+    // Progress of a background purge started by deletePost
+    @GetMapping("/{postId}/deletion")
+    public ResponseEntity<?> getDeletionProgress(@PathVariable Long postId) {
+        Map<String, Object> progress = postPurgeService.getProgress(postId);
+        if (progress == null) {
+            return ResponseEntity.status(404).body(Map.of("error", "No deletion in progress for post " + postId));
+        }
+        return ResponseEntity.ok(progress);
+    }
+
+    // GET endpoints are public; returns null for anonymous callers
+    private Long getCurrentUserIdOrNull() {
+        try {
+            Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+            if (auth != null && auth.isAuthenticated()) {
+                String email = auth.getName();
+                User user = userRepository.findByEmail(email).orElse(null);
+                if (user != null) {
+                    return user.getUserId();
+                }
+            }
+        } catch (Exception e) {
+            // User not authenticated
+        }
+        return null;
+    }
 }
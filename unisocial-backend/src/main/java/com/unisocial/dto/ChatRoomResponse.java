@@ -12,6 +12,7 @@ public class ChatRoomResponse {
     private Instant createdAt;
     private MessageResponse lastMessage;
     private List<UserResponse> participants;
+    private Long unreadCount;
 
     // Constructors
     public ChatRoomResponse() {}
@@ -44,5 +45,9 @@ public class ChatRoomResponse {
 
     public List<UserResponse> getParticipants() { return participants; }
     public void setParticipants(List<UserResponse> participants) { this.participants = participants; }
+
+    // Messages from other participants after the caller's read cursor; null when not computed
+    public Long getUnreadCount() { return unreadCount; }
+    public void setUnreadCount(Long unreadCount) { this.unreadCount = unreadCount; }
 }
 
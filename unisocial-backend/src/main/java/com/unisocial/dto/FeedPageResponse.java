@@ -0,0 +1,22 @@
+package com.unisocial.dto;
+
+import java.util.List;
+
+public class FeedPageResponse {
+    private List<PostResponse> posts;
+    private String nextCursor;
+
+    public FeedPageResponse() {}
+
+    public FeedPageResponse(List<PostResponse> posts, String nextCursor) {
+        this.posts = posts;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<PostResponse> getPosts() { return posts; }
+    public void setPosts(List<PostResponse> posts) { this.posts = posts; }
+
+    // null when there are no older posts
+    public String getNextCursor() { return nextCursor; }
+    public void setNextCursor(String nextCursor) { this.nextCursor = nextCursor; }
+}
@@ -0,0 +1,23 @@
+package com.unisocial.dto;
+
+import java.util.List;
+
+public class MessagePageResponse {
+    private List<MessageResponse> messages;
+    private boolean hasMore;
+
+    public MessagePageResponse() {}
+
+    public MessagePageResponse(List<MessageResponse> messages, boolean hasMore) {
+        this.messages = messages;
+        this.hasMore = hasMore;
+    }
+
+    // Always oldest first
+    public List<MessageResponse> getMessages() { return messages; }
+    public void setMessages(List<MessageResponse> messages) { this.messages = messages; }
+
+    // More older messages exist for before/latest pages, more newer ones for after pages
+    public boolean isHasMore() { return hasMore; }
+    public void setHasMore(boolean hasMore) { this.hasMore = hasMore; }
+}
@@ -0,0 +1,25 @@
+package com.unisocial.dto;
+
+public class MessageSearchHit {
+    private MessageResponse message;
+    private String snippet;
+    private double rank;
+
+    public MessageSearchHit() {}
+
+    public MessageSearchHit(MessageResponse message, String snippet, double rank) {
+        this.message = message;
+        this.snippet = snippet;
+        this.rank = rank;
+    }
+
+    public MessageResponse getMessage() { return message; }
+    public void setMessage(MessageResponse message) { this.message = message; }
+
+    // HTML-escaped excerpt with the matched terms wrapped in <mark>
+    public String getSnippet() { return snippet; }
+    public void setSnippet(String snippet) { this.snippet = snippet; }
+
+    public double getRank() { return rank; }
+    public void setRank(double rank) { this.rank = rank; }
+}
@@ -0,0 +1,27 @@
+package com.unisocial.dto;
+
+import java.util.List;
+
+public class MessageSearchResponse {
+    private List<MessageSearchHit> hits;
+    private int page;
+    private boolean hasMore;
+
+    public MessageSearchResponse() {}
+
+    public MessageSearchResponse(List<MessageSearchHit> hits, int page, boolean hasMore) {
+        this.hits = hits;
+        this.page = page;
+        this.hasMore = hasMore;
+    }
+
+    // Best match first
+    public List<MessageSearchHit> getHits() { return hits; }
+    public void setHits(List<MessageSearchHit> hits) { this.hits = hits; }
+
+    public int getPage() { return page; }
+    public void setPage(int page) { this.page = page; }
+
+    public boolean isHasMore() { return hasMore; }
+    public void setHasMore(boolean hasMore) { this.hasMore = hasMore; }
+}
@@ -16,6 +16,7 @@ public class PostResponse {
     private Instant createdAt;
     private Integer likeCount;
     private Integer commentCount;
+    private Boolean likedByCurrentUser;
 
     public PostResponse() {}
 
@@ -71,4 +72,8 @@ public class PostResponse {
     public void setLikeCount(Integer likeCount) { this.likeCount = likeCount; }
     public Integer getCommentCount() { return commentCount; }
     public void setCommentCount(Integer commentCount) { this.commentCount = commentCount; }
+
+    // null when the feed is requested anonymously
+    public Boolean getLikedByCurrentUser() { return likedByCurrentUser; }
+    public void setLikedByCurrentUser(Boolean likedByCurrentUser) { this.likedByCurrentUser = likedByCurrentUser; }
 }
@@ -0,0 +1,19 @@
+package com.unisocial.events;
+
+import com.unisocial.dto.MessageResponse;
+
+/**
+ * Published by ChatService when a message is saved. Listeners run after the
+ * surrounding transaction commits, so subscribers never see a message that
+ * was rolled back.
+ */
+public class ChatMessageSentEvent {
+    private final MessageResponse message;
+
+    public ChatMessageSentEvent(MessageResponse message) {
+        this.message = message;
+    }
+
+    public MessageResponse getMessage() { return message; }
+    public Long getChatRoomId() { return message.getChatRoomId(); }
+}
@@ -0,0 +1,22 @@
+package com.unisocial.events;
+
+/**
+ * Published by ClubMembershipService when a user becomes or stops being an
+ * approved member of a club. Listeners run after the surrounding transaction
+ * commits.
+ */
+public class ClubMembershipChangedEvent {
+    private final Long clubId;
+    private final Long userId;
+    private final boolean approvedMember;
+
+    public ClubMembershipChangedEvent(Long clubId, Long userId, boolean approvedMember) {
+        this.clubId = clubId;
+        this.userId = userId;
+        this.approvedMember = approvedMember;
+    }
+
+    public Long getClubId() { return clubId; }
+    public Long getUserId() { return userId; }
+    public boolean isApprovedMember() { return approvedMember; }
+}
@@ -0,0 +1,36 @@
+package com.unisocial.events;
+
+import com.unisocial.models.AuthorType;
+
+import java.time.Instant;
+
+/**
+ * Published by PostService when a post is saved. Listeners run after the
+ * surrounding transaction commits. The event doubles as the lightweight
+ * "new post" payload pushed to feed subscribers.
+ */
+public class PostCreatedEvent {
+    private final Long postId;
+    private final Long authorId;
+    private final AuthorType authorType;
+    private final String authorName;
+    private final String authorDpUrl;
+    private final Instant createdAt;
+
+    public PostCreatedEvent(Long postId, Long authorId, AuthorType authorType,
+                            String authorName, String authorDpUrl, Instant createdAt) {
+        this.postId = postId;
+        this.authorId = authorId;
+        this.authorType = authorType;
+        this.authorName = authorName;
+        this.authorDpUrl = authorDpUrl;
+        this.createdAt = createdAt;
+    }
+
+    public Long getPostId() { return postId; }
+    public Long getAuthorId() { return authorId; }
+    public AuthorType getAuthorType() { return authorType; }
+    public String getAuthorName() { return authorName; }
+    public String getAuthorDpUrl() { return authorDpUrl; }
+    public Instant getCreatedAt() { return createdAt; }
+}
@@ -0,0 +1,15 @@
+package com.unisocial.events;
+
+/**
+ * Published by PostService when a post is deleted or hidden for purging.
+ * Listeners run after the surrounding transaction commits.
+ */
+public class PostDeletedEvent {
+    private final Long postId;
+
+    public PostDeletedEvent(Long postId) {
+        this.postId = postId;
+    }
+
+    public Long getPostId() { return postId; }
+}
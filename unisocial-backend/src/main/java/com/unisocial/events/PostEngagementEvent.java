@@ -0,0 +1,20 @@
+package com.unisocial.events;
+
+/**
+ * Published when a like or comment changes a post's engagement.
+ */
+public class PostEngagementEvent {
+    private final Long postId;
+    private final long likeDelta;
+    private final long commentDelta;
+
+    public PostEngagementEvent(Long postId, long likeDelta, long commentDelta) {
+        this.postId = postId;
+        this.likeDelta = likeDelta;
+        this.commentDelta = commentDelta;
+    }
+
+    public Long getPostId() { return postId; }
+    public long getLikeDelta() { return likeDelta; }
+    public long getCommentDelta() { return commentDelta; }
+}
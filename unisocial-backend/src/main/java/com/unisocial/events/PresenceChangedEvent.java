@@ -0,0 +1,18 @@
+package com.unisocial.events;
+
+/**
+ * Published by PresenceRegistry when a user comes online or goes offline on
+ * this node. Forwarded to the other nodes by ChatClusterBridge.
+ */
+public class PresenceChangedEvent {
+    private final Long userId;
+    private final boolean online;
+
+    public PresenceChangedEvent(Long userId, boolean online) {
+        this.userId = userId;
+        this.online = online;
+    }
+
+    public Long getUserId() { return userId; }
+    public boolean isOnline() { return online; }
+}
@@ -0,0 +1,21 @@
+package com.unisocial.events;
+
+/**
+ * Published by PresenceRegistry when a user on this node starts or stops
+ * typing in a room. Forwarded to the other nodes by ChatClusterBridge.
+ */
+public class TypingChangedEvent {
+    private final Long chatRoomId;
+    private final Long userId;
+    private final boolean typing;
+
+    public TypingChangedEvent(Long chatRoomId, Long userId, boolean typing) {
+        this.chatRoomId = chatRoomId;
+        this.userId = userId;
+        this.typing = typing;
+    }
+
+    public Long getChatRoomId() { return chatRoomId; }
+    public Long getUserId() { return userId; }
+    public boolean isTyping() { return typing; }
+}
@@ -23,6 +23,11 @@ public class ChatParticipant {
     @Column(name = "joined_at", nullable = false, updatable = false)
     private Instant joinedAt;
 
+    // Newest message this participant has read; 0 when nothing has been read yet.
+    // Null only on rows created before read cursors existed, until the startup backfill sets them
+    @Column(name = "last_read_message_id")
+    private Long lastReadMessageId = 0L;
+
     @PrePersist
     protected void onCreate() { this.joinedAt = Instant.now(); }
 
@@ -30,11 +35,13 @@ public class ChatParticipant {
     public ChatRoom getChatRoom() { return chatRoom; }
     public User getUser() { return user; }
     public Instant getJoinedAt() { return joinedAt; }
+    public Long getLastReadMessageId() { return lastReadMessageId; }
 
     public void setParticipantId(Long participantId) { this.participantId = participantId; }
     public void setChatRoom(ChatRoom chatRoom) { this.chatRoom = chatRoom; }
     public void setUser(User user) { this.user = user; }
     public void setJoinedAt(Instant joinedAt) { this.joinedAt = joinedAt; }
+    public void setLastReadMessageId(Long lastReadMessageId) { this.lastReadMessageId = lastReadMessageId; }
 }
 
 
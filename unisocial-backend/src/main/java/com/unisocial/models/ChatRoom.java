@@ -4,7 +4,8 @@ import jakarta.persistence.*;
 import java.time.Instant;
 
 @Entity
-@Table(name = "chat_rooms")
+@Table(name = "chat_rooms", uniqueConstraints = @UniqueConstraint(
+        name = "uk_chat_rooms_private_pair", columnNames = {"private_user_low", "private_user_high"}))
 public class ChatRoom {
 
     @Id
@@ -20,6 +21,13 @@ public class ChatRoom {
     @JoinColumn(name = "club_id")
     private Club club; // null for PRIVATE rooms
 
+    // Canonical (smaller, larger) user id pair of a PRIVATE room; null for GROUP rooms
+    @Column(name = "private_user_low")
+    private Long privateUserLow;
+
+    @Column(name = "private_user_high")
+    private Long privateUserHigh;
+
     @Column(name = "created_at", nullable = false, updatable = false)
     private Instant createdAt;
 
@@ -30,11 +38,15 @@ public class ChatRoom {
     public ChatType getType() { return type; }
     public Club getClub() { return club; }
     public Instant getCreatedAt() { return createdAt; }
+    public Long getPrivateUserLow() { return privateUserLow; }
+    public Long getPrivateUserHigh() { return privateUserHigh; }
 
     public void setChatRoomId(Long chatRoomId) { this.chatRoomId = chatRoomId; }
     public void setType(ChatType type) { this.type = type; }
     public void setClub(Club club) { this.club = club; }
     public void setCreatedAt(Instant createdAt) { this.createdAt = createdAt; }
+    public void setPrivateUserLow(Long privateUserLow) { this.privateUserLow = privateUserLow; }
+    public void setPrivateUserHigh(Long privateUserHigh) { this.privateUserHigh = privateUserHigh; }
 }
 
 
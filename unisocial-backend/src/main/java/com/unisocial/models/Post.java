@@ -1,10 +1,15 @@
 package com.unisocial.models;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.SQLRestriction;
 import java.time.Instant;
 
 @Entity
-@Table(name = "posts")
+@SQLRestriction("deleted_at IS NULL")
+@Table(name = "posts", indexes = {
+        @Index(name = "idx_posts_created_at_post_id", columnList = "created_at, post_id"),
+        @Index(name = "idx_posts_author_created_at", columnList = "author_type, author_id, created_at, post_id")
+})
 public class Post {
 
     @Id
@@ -35,6 +40,18 @@ public class Post {
     @Column(name = "created_at", nullable = false, updatable = false)
     private Instant createdAt;
 
+    // Denormalized counters; only changed through atomic UPDATEs in PostRepository,
+    // never written back from entity state
+    @Column(name = "like_count", updatable = false, columnDefinition = "BIGINT NOT NULL DEFAULT 0")
+    private long likeCount;
+
+    @Column(name = "comment_count", updatable = false, columnDefinition = "BIGINT NOT NULL DEFAULT 0")
+    private long commentCount;
+
+    // Set while a large post's likes and comments are purged in the background; hidden from all queries
+    @Column(name = "deleted_at")
+    private Instant deletedAt;
+
     public Post() {}
 
     @PrePersist
@@ -95,4 +112,12 @@ public class Post {
     public Instant getCreatedAt() {
         return createdAt;
     }
+
+    public long getLikeCount() {
+        return likeCount;
+    }
+
+    public long getCommentCount() {
+        return commentCount;
+    }
 }
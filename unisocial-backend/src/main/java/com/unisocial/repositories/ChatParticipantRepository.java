@@ -2,15 +2,104 @@ package com.unisocial.repositories;
 
 import com.unisocial.models.ChatParticipant;
 import com.unisocial.models.ChatRoom;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface ChatParticipantRepository extends JpaRepository<ChatParticipant, Long> {
     List<ChatParticipant> findByUser_UserId(Long userId);
     List<ChatParticipant> findByChatRoom_ChatRoomId(Long chatRoomId);
+
+    @Query("SELECT p FROM ChatParticipant p JOIN FETCH p.user WHERE p.chatRoom.chatRoomId IN :chatRoomIds")
+    List<ChatParticipant> findWithUsersByChatRoomIds(@Param("chatRoomIds") Collection<Long> chatRoomIds);
+
+    // Read cursors only move forward
+    @Modifying
+    @Query("UPDATE ChatParticipant p SET p.lastReadMessageId = :messageId " +
+           "WHERE p.chatRoom.chatRoomId = :chatRoomId AND p.user.userId = :userId " +
+           "AND (p.lastReadMessageId IS NULL OR p.lastReadMessageId < :messageId)")
+    int advanceReadCursor(@Param("chatRoomId") Long chatRoomId, @Param("userId") Long userId,
+                          @Param("messageId") Long messageId);
+
+    @Modifying
+    @Query("UPDATE ChatParticipant p SET p.lastReadMessageId = " +
+           "(SELECT MAX(m.messageId) FROM Message m WHERE m.chatRoom.chatRoomId = :chatRoomId) " +
+           "WHERE p.chatRoom.chatRoomId = :chatRoomId AND p.user.userId = :userId")
+    int advanceReadCursorToLatest(@Param("chatRoomId") Long chatRoomId, @Param("userId") Long userId);
+
+    // One-time backfill for participants that predate read cursors: their history counts as read
+    @Modifying
+    @Query("UPDATE ChatParticipant p SET p.lastReadMessageId = COALESCE(" +
+           "(SELECT MAX(m.messageId) FROM Message m WHERE m.chatRoom = p.chatRoom), 0L) " +
+           "WHERE p.lastReadMessageId IS NULL")
+    int backfillReadCursors();
+
+    // Messages from others after each room's read cursor, as (chatRoomId, count) rows
+    @Query("SELECT p.chatRoom.chatRoomId, COUNT(m) FROM ChatParticipant p, Message m " +
+           "WHERE p.user.userId = :userId AND m.chatRoom = p.chatRoom " +
+           "AND m.messageId > COALESCE(p.lastReadMessageId, 0L) AND m.sender.userId <> :userId " +
+           "GROUP BY p.chatRoom.chatRoomId")
+    List<Object[]> countUnreadByRoom(@Param("userId") Long userId);
+
+    // The sender's name if they may post in the room: a participant, or an approved member of a group room's club
+    @Query("SELECT u.name FROM User u WHERE u.userId = :userId AND (" +
+           "EXISTS (SELECT p FROM ChatParticipant p WHERE p.chatRoom.chatRoomId = :chatRoomId AND p.user.userId = :userId) " +
+           "OR EXISTS (SELECT r FROM ChatRoom r, ClubMembership m WHERE r.chatRoomId = :chatRoomId " +
+           "AND r.type = com.unisocial.models.ChatType.GROUP AND m.club = r.club AND m.user.userId = :userId " +
+           "AND m.status = com.unisocial.models.MembershipStatus.APPROVED))")
+    Optional<String> findSenderNameIfAllowed(@Param("chatRoomId") Long chatRoomId, @Param("userId") Long userId);
+
+    // Group room sync: approved club members without a participant row, keyset-paged by user id
+    @Query("SELECT m.user.userId FROM ClubMembership m WHERE m.club.clubId = :clubId " +
+           "AND m.status = com.unisocial.models.MembershipStatus.APPROVED AND m.user.userId > :afterUserId " +
+           "AND NOT EXISTS (SELECT p FROM ChatParticipant p WHERE p.chatRoom.chatRoomId = :chatRoomId AND p.user = m.user) " +
+           "ORDER BY m.user.userId")
+    List<Long> findMissingGroupParticipants(@Param("chatRoomId") Long chatRoomId, @Param("clubId") Long clubId,
+                                            @Param("afterUserId") Long afterUserId, Pageable pageable);
+
+    // Participant rows whose user is no longer an approved club member
+    @Query("SELECT p.participantId FROM ChatParticipant p WHERE p.chatRoom.chatRoomId = :chatRoomId " +
+           "AND p.participantId > :afterId AND NOT EXISTS (SELECT m FROM ClubMembership m WHERE m.club.clubId = :clubId " +
+           "AND m.user = p.user AND m.status = com.unisocial.models.MembershipStatus.APPROVED) " +
+           "ORDER BY p.participantId")
+    List<Long> findStaleGroupParticipants(@Param("chatRoomId") Long chatRoomId, @Param("clubId") Long clubId,
+                                          @Param("afterId") Long afterId, Pageable pageable);
+
+    // One multi-row statement per chunk; rows that already exist are skipped. New members start
+    // with the room's history read, so a backfill does not flag years of messages as unread
+    @Modifying
+    @Query(value = "INSERT INTO chat_participants (chat_room_id, user_id, joined_at, last_read_message_id) " +
+                   "SELECT :chatRoomId, u.user_id, :joinedAt, " +
+                   "(SELECT COALESCE(MAX(m.message_id), 0) FROM messages m WHERE m.chat_room_id = :chatRoomId) " +
+                   "FROM users u WHERE u.user_id IN (:userIds) " +
+                   "AND NOT EXISTS (SELECT 1 FROM chat_participants p WHERE p.chat_room_id = :chatRoomId AND p.user_id = u.user_id)",
+           nativeQuery = true)
+    int insertParticipants(@Param("chatRoomId") Long chatRoomId, @Param("userIds") Collection<Long> userIds,
+                           @Param("joinedAt") Instant joinedAt);
+
+    @Modifying
+    @Query("DELETE FROM ChatParticipant p WHERE p.participantId IN :participantIds")
+    int deleteAllByIds(@Param("participantIds") Collection<Long> participantIds);
+
+    @Modifying
+    @Query("DELETE FROM ChatParticipant p WHERE p.chatRoom.chatRoomId = :chatRoomId AND p.user.userId = :userId")
+    int deleteByChatRoomIdAndUserId(@Param("chatRoomId") Long chatRoomId, @Param("userId") Long userId);
+
+    boolean existsByChatRoom_ChatRoomIdAndUser_UserId(Long chatRoomId, Long userId);
+
+    boolean existsByChatRoom_ChatRoomIdAndUser_Email(Long chatRoomId, String email);
+
+    @Query("SELECT p.user.email FROM ChatParticipant p WHERE p.chatRoom.chatRoomId = :chatRoomId")
+    List<String> findUserEmailsByChatRoomId(@Param("chatRoomId") Long chatRoomId);
 }
 
 
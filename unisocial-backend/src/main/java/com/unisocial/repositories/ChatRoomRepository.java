@@ -3,6 +3,9 @@ package com.unisocial.repositories;
 import com.unisocial.models.ChatRoom;
 import com.unisocial.models.ChatType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -11,6 +14,30 @@ import java.util.Optional;
 @Repository
 public interface ChatRoomRepository extends JpaRepository<ChatRoom, Long> {
     Optional<ChatRoom> findByTypeAndClub_ClubId(ChatType type, Long clubId);
+
+    @Query("SELECT r.chatRoomId FROM ChatRoom r WHERE r.privateUserLow = :low AND r.privateUserHigh = :high")
+    Optional<Long> findPrivateRoomId(@Param("low") Long low, @Param("high") Long high);
+
+    // PRIVATE rooms created before the pair key existed: room id, smaller and larger participant id
+    @Query("SELECT p.chatRoom.chatRoomId, MIN(p.user.userId), MAX(p.user.userId) FROM ChatParticipant p " +
+           "WHERE p.chatRoom.type = com.unisocial.models.ChatType.PRIVATE AND p.chatRoom.privateUserLow IS NULL " +
+           "GROUP BY p.chatRoom.chatRoomId")
+    List<Object[]> findUnkeyedPrivateRoomPairs();
+
+    @Modifying
+    @Query("UPDATE ChatRoom r SET r.privateUserLow = :low, r.privateUserHigh = :high WHERE r.chatRoomId = :chatRoomId")
+    int setPrivatePair(@Param("chatRoomId") Long chatRoomId, @Param("low") Long low, @Param("high") Long high);
+
+    // (chatRoomId, clubId) of every club group room
+    @Query("SELECT r.chatRoomId, r.club.clubId FROM ChatRoom r " +
+           "WHERE r.type = com.unisocial.models.ChatType.GROUP AND r.club IS NOT NULL")
+    List<Object[]> findGroupRoomClubs();
+
+    // A user's rooms with their club and its creator, for building the room list in one query
+    @Query("SELECT r FROM ChatRoom r LEFT JOIN FETCH r.club c LEFT JOIN FETCH c.createdBy " +
+           "WHERE r.chatRoomId IN (SELECT p.chatRoom.chatRoomId FROM ChatParticipant p WHERE p.user.userId = :userId) " +
+           "ORDER BY r.chatRoomId")
+    List<ChatRoom> findRoomsWithClubByUserId(@Param("userId") Long userId);
 }
 
 
@@ -6,6 +6,8 @@ import com.unisocial.models.ClubRole;
 import com.unisocial.models.MembershipStatus;
 import com.unisocial.models.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -29,6 +31,18 @@ public interface ClubMembershipRepository extends JpaRepository<ClubMembership,
     boolean existsByClubAndUserAndStatus(Club club, User user, MembershipStatus status);
 
     void deleteAllByClub(Club club);
+
+    // Id projections for timeline fan-out and rebuilds
+    @Query("SELECT m.user.userId FROM ClubMembership m WHERE m.club.clubId = :clubId AND m.status = :status")
+    List<Long> findUserIdsByClubIdAndStatus(@Param("clubId") Long clubId, @Param("status") MembershipStatus status);
+
+    @Query("SELECT m.club.clubId FROM ClubMembership m WHERE m.user.userId = :userId AND m.status = :status")
+    List<Long> findClubIdsByUserIdAndStatus(@Param("userId") Long userId, @Param("status") MembershipStatus status);
+
+    @Query("SELECT DISTINCT peer.user.userId FROM ClubMembership m, ClubMembership peer " +
+           "WHERE m.user.userId = :userId AND m.status = :status AND peer.club = m.club AND peer.status = :status " +
+           "AND peer.user.userId <> :userId")
+    List<Long> findPeerUserIds(@Param("userId") Long userId, @Param("status") MembershipStatus status);
 }
 
 
@@ -1,9 +1,14 @@
 package com.unisocial.repositories;
 
 import com.unisocial.models.Comment;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -17,6 +22,32 @@ public interface CommentRepository extends JpaRepository<Comment, Long> {
 
     long countByPostPostId(Long postId);
 
-    void deleteByPost_PostId(Long postId);
+    // Rows of (postId, commentCount); posts without comments are absent
+    @Query("SELECT c.post.postId, COUNT(c) FROM Comment c WHERE c.post.postId IN :postIds GROUP BY c.post.postId")
+    List<Object[]> countGroupedByPostIds(@Param("postIds") Collection<Long> postIds);
+
+    // Bulk statements; nothing is loaded into the persistence context
+    @Modifying
+    @Query("UPDATE Comment c SET c.parentComment = NULL WHERE c.post.postId = :postId AND c.parentComment IS NOT NULL")
+    int detachRepliesByPostId(@Param("postId") Long postId);
+
+    @Modifying
+    @Query("DELETE FROM Comment c WHERE c.post.postId = :postId")
+    int deleteAllByPostId(@Param("postId") Long postId);
+
+    // Chunked variants for the asynchronous purge of large posts
+    @Query("SELECT c.commentId FROM Comment c WHERE c.post.postId = :postId AND c.parentComment IS NOT NULL")
+    List<Long> findReplyIdsByPostId(@Param("postId") Long postId, Pageable pageable);
+
+    @Query("SELECT c.commentId FROM Comment c WHERE c.post.postId = :postId")
+    List<Long> findIdsByPostId(@Param("postId") Long postId, Pageable pageable);
+
+    @Modifying
+    @Query("UPDATE Comment c SET c.parentComment = NULL WHERE c.commentId IN :commentIds")
+    int detachReplies(@Param("commentIds") Collection<Long> commentIds);
+
+    @Modifying
+    @Query("DELETE FROM Comment c WHERE c.commentId IN :commentIds")
+    int deleteAllByIds(@Param("commentIds") Collection<Long> commentIds);
 }
 
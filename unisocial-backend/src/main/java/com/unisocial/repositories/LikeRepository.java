@@ -1,20 +1,57 @@
 package com.unisocial.repositories;
 
 import com.unisocial.models.Like;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface LikeRepository extends JpaRepository<Like, Long> {
+public interface LikeRepository extends JpaRepository<Like, Long>, LikeRepositoryCustom {
 
     Optional<Like> findByPostPostIdAndUserUserId(Long postId, Long userId);
 
     long countByPostPostId(Long postId);
 
+    // Rows of (postId, likeCount); posts without likes are absent
+    @Query("SELECT l.post.postId, COUNT(l) FROM Like l WHERE l.post.postId IN :postIds GROUP BY l.post.postId")
+    List<Object[]> countGroupedByPostIds(@Param("postIds") Collection<Long> postIds);
+
+    @Query("SELECT DISTINCT l.post.postId FROM Like l WHERE l.createdAt > :since")
+    List<Long> findPostIdsLikedSince(@Param("since") Instant since);
+
+    @Query("SELECT DISTINCT l.post.postId FROM Like l WHERE l.createdAt > :since AND l.post.postId IN :postIds")
+    List<Long> findPostIdsLikedSinceIn(@Param("since") Instant since, @Param("postIds") Collection<Long> postIds);
+
+    // Which of the given posts the user has liked
+    @Query("SELECT l.post.postId FROM Like l WHERE l.user.userId = :userId AND l.post.postId IN :postIds")
+    List<Long> findLikedPostIds(@Param("userId") Long userId, @Param("postIds") Collection<Long> postIds);
+
     boolean existsByPostPostIdAndUserUserId(Long postId, Long userId);
 
-    void deleteByPost_PostId(Long postId);
+    // Single-statement unlike; returns the number of rows removed (0 or 1)
+    @Modifying
+    @Query("DELETE FROM Like l WHERE l.post.postId = :postId AND l.user.userId = :userId")
+    int deleteByPostIdAndUserId(@Param("postId") Long postId, @Param("userId") Long userId);
+
+    // Bulk statements; nothing is loaded into the persistence context
+    @Modifying
+    @Query("DELETE FROM Like l WHERE l.post.postId = :postId")
+    int deleteAllByPostId(@Param("postId") Long postId);
+
+    // Chunked variants for the asynchronous purge of large posts
+    @Query("SELECT l.likeId FROM Like l WHERE l.post.postId = :postId")
+    List<Long> findIdsByPostId(@Param("postId") Long postId, Pageable pageable);
+
+    @Modifying
+    @Query("DELETE FROM Like l WHERE l.likeId IN :likeIds")
+    int deleteAllByIds(@Param("likeIds") Collection<Long> likeIds);
 }
 
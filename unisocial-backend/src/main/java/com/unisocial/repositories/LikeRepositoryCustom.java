@@ -0,0 +1,12 @@
+package com.unisocial.repositories;
+
+public interface LikeRepositoryCustom {
+
+    /**
+     * Inserts the like in a single statement, doing nothing if it already exists
+     * or the post is missing or hidden for purging (native SQL does not see
+     * {@code @SQLRestriction}, so the statement checks deleted_at itself).
+     * Returns true only if a row was inserted.
+     */
+    boolean insertIfAbsent(Long postId, Long userId);
+}
@@ -0,0 +1,75 @@
+package com.unisocial.repositories;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.Session;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.sql.Timestamp;
+import java.time.Instant;
+
+public class LikeRepositoryImpl implements LikeRepositoryCustom {
+
+    private static final int MYSQL_DUPLICATE_ENTRY = 1062;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    // Resolved from the first connection used; the database does not change at runtime
+    private volatile Boolean postgres;
+
+    @Override
+    public boolean insertIfAbsent(Long postId, Long userId) {
+        if (!isPostgres()) {
+            return insertIfAbsentMySql(postId, userId);
+        }
+        // FOR SHARE orders the insert against schedulePurge hiding the post: whichever commits second sees the other
+        int inserted = entityManager.createNativeQuery(
+                        "INSERT INTO likes (post_id, user_id, created_at) " +
+                        "SELECT p.post_id, :userId, :createdAt FROM posts p " +
+                        "WHERE p.post_id = :postId AND p.deleted_at IS NULL FOR SHARE " +
+                        "ON CONFLICT (post_id, user_id) DO NOTHING")
+                .setParameter("postId", postId)
+                .setParameter("userId", userId)
+                .setParameter("createdAt", Instant.now())
+                .executeUpdate();
+        return inserted == 1;
+    }
+
+    /*
+     * INSERT IGNORE would also swallow the post foreign key error, and with the driver's
+     * default found-rows mode ON DUPLICATE KEY UPDATE reports 1 for a duplicate too. A
+     * plain INSERT with only the duplicate-entry error caught tells the two cases apart
+     * and still fails for a missing post. Run on the raw connection so the expected
+     * duplicate does not mark the surrounding transaction rollback-only; MySQL rolls back
+     * just the failed statement. INSERT ... SELECT takes a shared lock on the post row it reads.
+     */
+    private boolean insertIfAbsentMySql(Long postId, Long userId) {
+        return entityManager.unwrap(Session.class).doReturningWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "INSERT INTO likes (post_id, user_id, created_at) " +
+                    "SELECT p.post_id, ?, ? FROM posts p WHERE p.post_id = ? AND p.deleted_at IS NULL")) {
+                statement.setLong(1, userId);
+                statement.setTimestamp(2, Timestamp.from(Instant.now()));
+                statement.setLong(3, postId);
+                return statement.executeUpdate() == 1;
+            } catch (SQLIntegrityConstraintViolationException e) {
+                if (e.getErrorCode() == MYSQL_DUPLICATE_ENTRY) {
+                    return false;
+                }
+                throw e;
+            }
+        });
+    }
+
+    private boolean isPostgres() {
+        Boolean result = postgres;
+        if (result == null) {
+            result = entityManager.unwrap(Session.class).doReturningWork(connection ->
+                    connection.getMetaData().getDatabaseProductName().toLowerCase().contains("postgres"));
+            postgres = result;
+        }
+        return result;
+    }
+}
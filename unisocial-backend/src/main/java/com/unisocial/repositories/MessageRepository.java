@@ -1,20 +1,54 @@
 package com.unisocial.repositories;
 
+import com.unisocial.models.ChatType;
 import com.unisocial.models.Message;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
-public interface MessageRepository extends JpaRepository<Message, Long> {
+public interface MessageRepository extends JpaRepository<Message, Long>, MessageRepositoryCustom {
     List<Message> findByChatRoom_ChatRoomIdOrderByTimestampAsc(Long chatRoomId);
+
+    boolean existsByMessageIdAndChatRoom_ChatRoomId(Long messageId, Long chatRoomId);
     
     @Query("SELECT m FROM Message m WHERE m.chatRoom.chatRoomId = :chatRoomId ORDER BY m.timestamp DESC LIMIT 1")
     Message findLastMessageByChatRoomId(@Param("chatRoomId") Long chatRoomId);
-}
 
+    // Newest message of each room; MAX per room is read from the end of each idx_messages_room_message range
+    @Query("SELECT m FROM Message m JOIN FETCH m.sender WHERE m.messageId IN " +
+           "(SELECT MAX(m2.messageId) FROM Message m2 WHERE m2.chatRoom.chatRoomId IN :chatRoomIds GROUP BY m2.chatRoom.chatRoomId)")
+    List<Message> findLastMessagesByChatRoomIds(@Param("chatRoomIds") Collection<Long> chatRoomIds);
+
+    @Query("SELECT m FROM Message m JOIN FETCH m.sender WHERE m.messageId IN :messageIds ORDER BY m.messageId")
+    List<Message> findAllWithSenderByIds(@Param("messageIds") Collection<Long> messageIds);
+
+    // Keyset pages over idx_messages_room_message; the sender is fetched in the same query
+    @Query("SELECT m FROM Message m JOIN FETCH m.sender WHERE m.chatRoom.chatRoomId = :chatRoomId " +
+           "ORDER BY m.messageId DESC")
+    List<Message> findLatest(@Param("chatRoomId") Long chatRoomId, Pageable pageable);
 
+    @Query("SELECT m FROM Message m JOIN FETCH m.sender WHERE m.chatRoom.chatRoomId = :chatRoomId " +
+           "AND m.messageId < :beforeId ORDER BY m.messageId DESC")
+    List<Message> findPageBefore(@Param("chatRoomId") Long chatRoomId, @Param("beforeId") Long beforeId, Pageable pageable);
 
+    @Query("SELECT m FROM Message m JOIN FETCH m.sender WHERE m.chatRoom.chatRoomId = :chatRoomId " +
+           "AND m.messageId > :afterId ORDER BY m.messageId ASC")
+    List<Message> findPageAfter(@Param("chatRoomId") Long chatRoomId, @Param("afterId") Long afterId, Pageable pageable);
+
+    // Retention: messages of one chat type older than the cutoff, deleted a chunk at a time
+    @Query("SELECT m.messageId FROM Message m WHERE m.chatRoom.type = :type AND m.timestamp < :cutoff " +
+           "ORDER BY m.messageId")
+    List<Long> findIdsByRoomTypeSentBefore(@Param("type") ChatType type, @Param("cutoff") Instant cutoff, Pageable pageable);
+
+    @Modifying
+    @Query("DELETE FROM Message m WHERE m.messageId IN :messageIds")
+    int deleteAllByIds(@Param("messageIds") Collection<Long> messageIds);
+}
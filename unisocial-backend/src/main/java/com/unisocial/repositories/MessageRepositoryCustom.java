@@ -0,0 +1,14 @@
+package com.unisocial.repositories;
+
+import com.unisocial.models.Message;
+
+import java.util.List;
+
+public interface MessageRepositoryCustom {
+
+    /**
+     * Inserts the messages as one JDBC batch and sets their generated ids.
+     * IDENTITY ids keep Hibernate from batching inserts itself.
+     */
+    void insertAll(List<Message> messages);
+}
@@ -0,0 +1,46 @@
+package com.unisocial.repositories;
+
+import com.unisocial.models.Message;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.Session;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.util.Calendar;
+import java.util.List;
+import java.util.TimeZone;
+
+public class MessageRepositoryImpl implements MessageRepositoryCustom {
+
+    private static final String INSERT_SQL =
+            "INSERT INTO messages (chat_room_id, sender_id, content, timestamp, is_read) VALUES (?, ?, ?, ?, ?)";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public void insertAll(List<Message> messages) {
+        Calendar utc = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+        entityManager.unwrap(Session.class).doWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(INSERT_SQL, new String[] {"message_id"})) {
+                for (Message message : messages) {
+                    statement.setLong(1, message.getChatRoom().getChatRoomId());
+                    statement.setLong(2, message.getSender().getUserId());
+                    statement.setString(3, message.getContent());
+                    statement.setTimestamp(4, Timestamp.from(message.getTimestamp()), utc);
+                    statement.setBoolean(5, Boolean.TRUE.equals(message.getRead()));
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+                try (ResultSet keys = statement.getGeneratedKeys()) {
+                    int i = 0;
+                    while (keys.next() && i < messages.size()) {
+                        messages.get(i++).setMessageId(keys.getLong(1));
+                    }
+                }
+            }
+        });
+    }
+}
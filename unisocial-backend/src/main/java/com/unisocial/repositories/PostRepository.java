@@ -1,13 +1,101 @@
 package com.unisocial.repositories;
 
+import com.unisocial.models.AuthorType;
 import com.unisocial.models.Post;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface PostRepository extends JpaRepository<Post, Long> {
     List<Post> findByAuthorId(Long userId);
     List<Post> findAllByOrderByCreatedAtDesc();
+
+    // Keyset pagination over (created_at, post_id); served by idx_posts_created_at_post_id
+    List<Post> findAllByOrderByCreatedAtDescPostIdDesc(Pageable pageable);
+
+    @Query("SELECT p FROM Post p WHERE p.createdAt < :createdAt OR (p.createdAt = :createdAt AND p.postId < :postId) " +
+           "ORDER BY p.createdAt DESC, p.postId DESC")
+    List<Post> findFeedPageBefore(@Param("createdAt") Instant createdAt, @Param("postId") Long postId, Pageable pageable);
+
+    List<Post> findByCreatedAtAfterOrderByCreatedAtDesc(Instant since, Pageable pageable);
+
+    // Per-author queries; served by idx_posts_author_created_at
+    List<Post> findByAuthorTypeAndAuthorIdOrderByCreatedAtDescPostIdDesc(AuthorType authorType, Long authorId);
+
+    List<Post> findByAuthorTypeAndAuthorIdOrderByCreatedAtDescPostIdDesc(AuthorType authorType, Long authorId, Pageable pageable);
+
+    @Query("SELECT p FROM Post p WHERE p.authorType = :authorType AND p.authorId = :authorId " +
+           "AND (p.createdAt < :createdAt OR (p.createdAt = :createdAt AND p.postId < :postId)) " +
+           "ORDER BY p.createdAt DESC, p.postId DESC")
+    List<Post> findAuthorPageBefore(@Param("authorType") AuthorType authorType, @Param("authorId") Long authorId,
+                                    @Param("createdAt") Instant createdAt, @Param("postId") Long postId,
+                                    Pageable pageable);
+
+    long countByAuthorTypeAndAuthorId(AuthorType authorType, Long authorId);
+
+    // Newest post ids by any of the given clubs or users, for timeline rebuilds
+    @Query("SELECT p.postId FROM Post p WHERE (p.authorType = :clubType AND p.authorId IN :clubIds) " +
+           "OR (p.authorType = :userType AND p.authorId IN :userIds) ORDER BY p.createdAt DESC, p.postId DESC")
+    List<Long> findTimelinePostIds(@Param("clubType") AuthorType clubType, @Param("clubIds") Collection<Long> clubIds,
+                                   @Param("userType") AuthorType userType, @Param("userIds") Collection<Long> userIds,
+                                   Pageable pageable);
+
+    @Query("SELECT COALESCE(SUM(p.likeCount + p.commentCount), 0L) FROM Post p " +
+           "WHERE p.authorType = :authorType AND p.authorId = :authorId")
+    long sumEngagementByAuthor(@Param("authorType") AuthorType authorType, @Param("authorId") Long authorId);
+
+    // Ranked by denormalized engagement, no COUNT(*) over likes/comments
+    @Query("SELECT p FROM Post p ORDER BY (p.likeCount + p.commentCount) DESC, p.createdAt DESC")
+    List<Post> findTopByEngagement(Pageable pageable);
+
+    @Query("SELECT p.likeCount FROM Post p WHERE p.postId = :postId")
+    Long findLikeCount(@Param("postId") Long postId);
+
+    // Row of (createdAt, likeCount, commentCount); a scalar query so it never returns a stale cached entity
+    @Query("SELECT p.createdAt, p.likeCount, p.commentCount FROM Post p WHERE p.postId = :postId")
+    List<Object[]> findCreatedAtAndCounts(@Param("postId") Long postId);
+
+    // Rows of (postId, likeCount)
+    @Query("SELECT p.postId, p.likeCount FROM Post p WHERE p.postId IN :postIds")
+    List<Object[]> findLikeCounts(@Param("postIds") Collection<Long> postIds);
+
+    // Posts hidden by @SQLRestriction are only reachable through native queries
+    @Modifying
+    @Query("UPDATE Post p SET p.deletedAt = :deletedAt WHERE p.postId = :postId")
+    int markDeleted(@Param("postId") Long postId, @Param("deletedAt") Instant deletedAt);
+
+    @Query(value = "SELECT post_id FROM posts WHERE deleted_at IS NOT NULL", nativeQuery = true)
+    List<Long> findMarkedDeletedIds();
+
+    @Modifying
+    @Query(value = "DELETE FROM posts WHERE post_id = :postId", nativeQuery = true)
+    int hardDelete(@Param("postId") Long postId);
+
+    // Single-statement atomic counter updates
+    @Modifying
+    @Query("UPDATE Post p SET p.likeCount = p.likeCount + :delta WHERE p.postId = :postId")
+    int incrementLikeCount(@Param("postId") Long postId, @Param("delta") long delta);
+
+    @Modifying
+    @Query("UPDATE Post p SET p.commentCount = p.commentCount + :delta WHERE p.postId = :postId")
+    int incrementCommentCount(@Param("postId") Long postId, @Param("delta") long delta);
+
+    // Rows of (postId, likeCount, commentCount) in id order, for chunked reconciliation
+    @Query("SELECT p.postId, p.likeCount, p.commentCount FROM Post p WHERE p.postId > :afterId ORDER BY p.postId")
+    List<Object[]> findCountsAfter(@Param("afterId") Long afterId, Pageable pageable);
+
+    @Modifying
+    @Query("UPDATE Post p SET " +
+           "p.likeCount = (SELECT COUNT(l) FROM Like l WHERE l.post.postId = p.postId), " +
+           "p.commentCount = (SELECT COUNT(c) FROM Comment c WHERE c.post.postId = p.postId) " +
+           "WHERE p.postId IN :postIds")
+    int recomputeCounts(@Param("postIds") Collection<Long> postIds);
 }
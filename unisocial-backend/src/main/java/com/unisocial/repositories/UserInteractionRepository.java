@@ -8,7 +8,7 @@ import org.springframework.stereotype.Repository;
 import java.util.List;
 
 @Repository
-public interface UserInteractionRepository extends JpaRepository<UserInteraction, Long> {
+public interface UserInteractionRepository extends JpaRepository<UserInteraction, Long>, UserInteractionRepositoryCustom {
     List<UserInteraction> findByUser_UserId(Long userId);
     List<UserInteraction> findByUser_UserIdAndTargetType(Long userId, TargetType type);
 }
@@ -0,0 +1,14 @@
+package com.unisocial.repositories;
+
+import com.unisocial.models.UserInteraction;
+
+import java.util.List;
+
+public interface UserInteractionRepositoryCustom {
+
+    /**
+     * Inserts the interactions with a single multi-row INSERT. Ids are not read back;
+     * interactions are only ever queried, never updated.
+     */
+    void insertAll(List<UserInteraction> interactions);
+}
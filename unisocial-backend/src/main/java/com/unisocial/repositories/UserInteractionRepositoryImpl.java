@@ -0,0 +1,48 @@
+package com.unisocial.repositories;
+
+import com.unisocial.models.UserInteraction;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.Session;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.util.Calendar;
+import java.util.List;
+import java.util.TimeZone;
+
+public class UserInteractionRepositoryImpl implements UserInteractionRepositoryCustom {
+
+    private static final String INSERT_PREFIX =
+            "INSERT INTO user_interactions (user_id, target_id, target_type, action, created_at) VALUES ";
+    private static final String ROW = "(?, ?, ?, ?, ?)";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public void insertAll(List<UserInteraction> interactions) {
+        if (interactions.isEmpty()) {
+            return;
+        }
+        StringBuilder sql = new StringBuilder(INSERT_PREFIX.length() + interactions.size() * (ROW.length() + 2))
+                .append(INSERT_PREFIX);
+        for (int i = 0; i < interactions.size(); i++) {
+            sql.append(i == 0 ? ROW : ", " + ROW);
+        }
+        Calendar utc = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+        entityManager.unwrap(Session.class).doWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(sql.toString())) {
+                int p = 1;
+                for (UserInteraction interaction : interactions) {
+                    statement.setLong(p++, interaction.getUser().getUserId());
+                    statement.setLong(p++, interaction.getTargetId());
+                    statement.setString(p++, interaction.getTargetType().name());
+                    statement.setString(p++, interaction.getAction().name());
+                    statement.setTimestamp(p++, Timestamp.from(interaction.getCreatedAt()), utc);
+                }
+                statement.executeUpdate();
+            }
+        });
+    }
+}
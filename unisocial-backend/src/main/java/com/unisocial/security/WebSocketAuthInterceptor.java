@@ -0,0 +1,135 @@
+package com.unisocial.security;
+
+import com.unisocial.repositories.ChatParticipantRepository;
+import com.unisocial.repositories.UserRepository;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageDeliveryException;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Component;
+
+import java.security.Principal;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Authenticates STOMP sessions with the same JWT used for REST calls.
+ * Browsers cannot set headers on the WebSocket upgrade, so the token travels
+ * in the CONNECT frame's Authorization header.
+ *
+ * The simple broker would otherwise accept anything on /topic and /queue, so
+ * clients may only SEND to application destinations (/app/...), and SUBSCRIBE
+ * only to an explicit list: a chat room topic or its /typing sub-topic (for
+ * participants of that room), a user's presence topic, and their own /user/queue
+ * destinations. Pattern characters are rejected because the broker would match
+ * them against every room.
+ */
+@Component
+public class WebSocketAuthInterceptor implements ChannelInterceptor {
+
+    private static final String APP_PREFIX = "/app/";
+    private static final Pattern CHAT_ROOM_TOPIC = Pattern.compile("^/topic/chatroom/(\\d+)(/typing)?$");
+    private static final Pattern PRESENCE_TOPIC = Pattern.compile("^/topic/presence/\\d+$");
+    private static final Pattern USER_QUEUE = Pattern.compile("^/user/queue/[A-Za-z0-9_\\-/]+$");
+
+    private final JwtUtils jwtUtils;
+    private final CustomUserDetailsService userDetailsService;
+    private final ChatParticipantRepository chatParticipantRepository;
+    private final UserRepository userRepository;
+
+    public WebSocketAuthInterceptor(JwtUtils jwtUtils, CustomUserDetailsService userDetailsService,
+                                    ChatParticipantRepository chatParticipantRepository,
+                                    UserRepository userRepository) {
+        this.jwtUtils = jwtUtils;
+        this.userDetailsService = userDetailsService;
+        this.chatParticipantRepository = chatParticipantRepository;
+        this.userRepository = userRepository;
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+        if (accessor == null || accessor.getCommand() == null) {
+            return message;
+        }
+
+        StompCommand command = accessor.getCommand();
+        if (StompCommand.CONNECT.equals(command)) {
+            accessor.setUser(authenticate(accessor.getFirstNativeHeader("Authorization")));
+        } else if (StompCommand.SEND.equals(command)) {
+            requireUser(accessor);
+            String destination = accessor.getDestination();
+            // Publishing straight to a broker topic would skip the send path and its membership check
+            if (destination == null || !destination.startsWith(APP_PREFIX)) {
+                throw new MessageDeliveryException("Clients may only send to " + APP_PREFIX + " destinations");
+            }
+        } else if (StompCommand.SUBSCRIBE.equals(command)) {
+            checkSubscription(requireUser(accessor), accessor.getDestination());
+        }
+        return message;
+    }
+
+    private void checkSubscription(Principal user, String destination) {
+        if (destination == null || destination.contains("*") || destination.contains("?") || destination.contains("{")) {
+            throw new MessageDeliveryException("Unknown destination");
+        }
+        Matcher room = CHAT_ROOM_TOPIC.matcher(destination);
+        if (room.matches()) {
+            Long chatRoomId = parseChatRoomId(room.group(1));
+            if (!chatParticipantRepository.existsByChatRoom_ChatRoomIdAndUser_Email(chatRoomId, user.getName())) {
+                throw new MessageDeliveryException("Not a participant of chat room " + chatRoomId);
+            }
+            return;
+        }
+        if (PRESENCE_TOPIC.matcher(destination).matches() || USER_QUEUE.matcher(destination).matches()) {
+            return;
+        }
+        throw new MessageDeliveryException("Unknown destination");
+    }
+
+    private Principal requireUser(StompHeaderAccessor accessor) {
+        Principal user = accessor.getUser();
+        if (user == null) {
+            throw new MessageDeliveryException("Not authenticated");
+        }
+        return user;
+    }
+
+    private UsernamePasswordAuthenticationToken authenticate(String authHeader) {
+        if (authHeader == null || !authHeader.startsWith("Bearer ")) {
+            throw new MessageDeliveryException("Missing bearer token");
+        }
+        String jwt = authHeader.substring(7);
+        try {
+            String userEmail = jwtUtils.extractUsername(jwt);
+            UserDetails userDetails = userDetailsService.loadUserByUsername(userEmail);
+            if (!jwtUtils.isTokenValid(jwt, userDetails.getUsername())) {
+                throw new MessageDeliveryException("Invalid token");
+            }
+            UsernamePasswordAuthenticationToken authentication =
+                    new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
+            // The user id rides along as details so message handlers need no lookup
+            authentication.setDetails(userRepository.findByEmail(userDetails.getUsername())
+                    .orElseThrow(() -> new MessageDeliveryException("User not found"))
+                    .getUserId());
+            return authentication;
+        } catch (MessageDeliveryException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new MessageDeliveryException("Invalid token");
+        }
+    }
+
+    private Long parseChatRoomId(String value) {
+        try {
+            return Long.valueOf(value);
+        } catch (NumberFormatException e) {
+            throw new MessageDeliveryException("Unknown destination");
+        }
+    }
+}
@@ -3,6 +3,7 @@ package com.unisocial.services;
 import com.unisocial.dto.*;
 import com.unisocial.models.*;
 import com.unisocial.repositories.*;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -24,6 +25,7 @@ public class AnalyticsService {
     private final LikeRepository likeRepository;
     private final CommentRepository commentRepository;
     private final ClubMembershipRepository clubMembershipRepository;
+    private final PostAuthorResolver postAuthorResolver;
 
     public AnalyticsService(UserRepository userRepository,
                            PostRepository postRepository,
@@ -31,7 +33,8 @@ public class AnalyticsService {
                            EventRepository eventRepository,
                            LikeRepository likeRepository,
                            CommentRepository commentRepository,
-                           ClubMembershipRepository clubMembershipRepository) {
+                           ClubMembershipRepository clubMembershipRepository,
+                           PostAuthorResolver postAuthorResolver) {
         this.userRepository = userRepository;
         this.postRepository = postRepository;
         this.clubRepository = clubRepository;
@@ -39,6 +42,7 @@ public class AnalyticsService {
         this.likeRepository = likeRepository;
         this.commentRepository = commentRepository;
         this.clubMembershipRepository = clubMembershipRepository;
+        this.postAuthorResolver = postAuthorResolver;
     }
 
     /**
@@ -116,16 +120,17 @@ public class AnalyticsService {
      * Get trending posts ranked by engagement (likes + comments)
      */
     public List<TrendingPostDTO> getTrendingPosts(int limit) {
-        List<Post> allPosts = postRepository.findAllByOrderByCreatedAtDesc();
+        List<Post> topPosts = postRepository.findTopByEngagement(PageRequest.of(0, limit));
+        PostAuthorResolver.Authors authors = postAuthorResolver.resolve(topPosts);
 
         // Calculate engagement for each post
-        List<TrendingPostDTO> trendingPosts = allPosts.stream()
+        List<TrendingPostDTO> trendingPosts = topPosts.stream()
                 .map(post -> {
-                    long likeCount = likeRepository.countByPostPostId(post.getPostId());
-                    long commentCount = commentRepository.countByPostPostId(post.getPostId());
+                    long likeCount = post.getLikeCount();
+                    long commentCount = post.getCommentCount();
 
                     // Get author name
-                    String authorName = getAuthorName(post);
+                    String authorName = getAuthorName(authors, post);
 
                     return new TrendingPostDTO(
                             post.getPostId(),
@@ -136,8 +141,6 @@ public class AnalyticsService {
                             post.getCreatedAt()
                     );
                 })
-                .sorted((a, b) -> Long.compare(b.getTotalEngagement(), a.getTotalEngagement()))
-                .limit(limit)
                 .collect(Collectors.toList());
 
         return trendingPosts;
@@ -156,29 +159,17 @@ public class AnalyticsService {
                 .count();
 
         // Count posts by this club
-        int postCount = (int) postRepository.findAll().stream()
-                .filter(p -> p.getAuthorType() == AuthorType.CLUB && p.getAuthor().equals(clubId))
-                .count();
+        int postCount = (int) postRepository.countByAuthorTypeAndAuthorId(AuthorType.CLUB, clubId);
 
         // Count events by this club
         int eventCount = eventRepository.findByClub_ClubId(clubId).size();
 
-        // Calculate engagement score
-        List<Post> clubPosts = postRepository.findAll().stream()
-                .filter(p -> p.getAuthorType() == AuthorType.CLUB && p.getAuthor().equals(clubId))
-                .collect(Collectors.toList());
-
-        long totalLikes = 0;
-        long totalComments = 0;
-
-        for (Post post : clubPosts) {
-            totalLikes += likeRepository.countByPostPostId(post.getPostId());
-            totalComments += commentRepository.countByPostPostId(post.getPostId());
-        }
+        // Calculate engagement score from the denormalized counters
+        long totalEngagement = postRepository.sumEngagementByAuthor(AuthorType.CLUB, clubId);
 
         double engagementScore = 0.0;
         if (postCount > 0) {
-            engagementScore = (double) (totalLikes + totalComments) / postCount;
+            engagementScore = (double) totalEngagement / postCount;
         }
 
         return new ClubAnalyticsDTO(
@@ -194,14 +185,12 @@ public class AnalyticsService {
     /**
      * Helper method to get author name for a post
      */
-    private String getAuthorName(Post post) {
-        if (post.getAuthorType() == AuthorType.USER) {
-            Optional<User> user = userRepository.findById(post.getAuthor());
-            return user.map(User::getName).orElse("Unknown User");
-        } else {
-            Optional<Club> club = clubRepository.findById(post.getAuthor());
-            return club.map(Club::getName).orElse("Unknown Club");
+    private String getAuthorName(PostAuthorResolver.Authors authors, Post post) {
+        String name = authors.getName(post);
+        if (name != null) {
+            return name;
         }
+        return post.getAuthorType() == AuthorType.USER ? "Unknown User" : "Unknown Club";
     }
 }
 
@@ -0,0 +1,53 @@
+package com.unisocial.services;
+
+import com.unisocial.dto.MessageResponse;
+import com.unisocial.events.ChatMessageSentEvent;
+import com.unisocial.repositories.ChatParticipantRepository;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Pushes committed chat messages to connected clients: the full message to
+ * the room topic, and a room-list preview to each participant's user queue.
+ * Clients only fall back to the REST endpoints to resync after reconnecting.
+ */
+@Service
+public class ChatBroadcaster {
+
+    private final SimpMessagingTemplate messagingTemplate;
+    private final ChatParticipantRepository chatParticipantRepository;
+
+    public ChatBroadcaster(SimpMessagingTemplate messagingTemplate,
+                           ChatParticipantRepository chatParticipantRepository) {
+        this.messagingTemplate = messagingTemplate;
+        this.chatParticipantRepository = chatParticipantRepository;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onMessageSent(ChatMessageSentEvent event) {
+        broadcast(event.getMessage());
+    }
+
+    /**
+     * Delivers a message to this node's subscribers. Also called by
+     * {@link ChatClusterBridge} for messages accepted on other nodes.
+     */
+    public void broadcast(MessageResponse message) {
+        Long chatRoomId = message.getChatRoomId();
+        messagingTemplate.convertAndSend("/topic/chatroom/" + chatRoomId, message);
+
+        Map<String, Object> preview = new LinkedHashMap<>();
+        preview.put("chatRoomId", chatRoomId);
+        preview.put("lastMessage", message);
+        // User destinations are keyed by principal name, which is the email
+        List<String> participantEmails = chatParticipantRepository.findUserEmailsByChatRoomId(chatRoomId);
+        for (String email : participantEmails) {
+            messagingTemplate.convertAndSendToUser(email, "/queue/rooms", preview);
+        }
+    }
+}
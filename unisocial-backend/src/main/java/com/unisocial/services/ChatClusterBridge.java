@@ -0,0 +1,437 @@
+package com.unisocial.services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.unisocial.dto.MessageResponse;
+import com.unisocial.events.ChatMessageSentEvent;
+import com.unisocial.events.PostCreatedEvent;
+import com.unisocial.events.PostDeletedEvent;
+import com.unisocial.events.PostEngagementEvent;
+import com.unisocial.events.PresenceChangedEvent;
+import com.unisocial.events.TypingChangedEvent;
+import com.unisocial.models.AuthorType;
+import jakarta.annotation.PreDestroy;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.sql.DataSource;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cross-node fan-out over Postgres LISTEN/NOTIFY. Each node announces the
+ * messages it accepts as "nodeId:chatRoomId:messageId" on one channel; every
+ * other node loads those messages in one query and pushes them to its own
+ * WebSocket subscribers and recent-message cache. New posts go out the same way
+ * on a second channel, carrying the small PostCreatedEvent itself as JSON, so
+ * feed stream subscribers, cached timelines and the hot ranking on every node
+ * are updated; engagement deltas (coalesced per post over a short interval) and
+ * deletes go out on the same channel so every node ranks the same posts. A
+ * third channel carries presence and typing changes, plus a periodic list of
+ * each node's online users that keeps remote presence entries alive.
+ *
+ * NOTIFY is not durable: notifications sent while a node's listener connection
+ * is down are lost, so the node clears its message cache and timelines on
+ * reconnect and clients resync with an "after" history request. Disabled on MySQL, which
+ * the single-node development setup uses.
+ */
+@Service
+public class ChatClusterBridge {
+
+    private static final String CHAT_CHANNEL = "chat_messages";
+    private static final String POST_CHANNEL = "feed_posts";
+    private static final String PRESENCE_CHANNEL = "chat_presence";
+
+    // User ids per presence snapshot notification, well under the payload cap
+    private static final int SNAPSHOT_CHUNK_SIZE = 400;
+
+    // Posts per engagement notification, well under the payload cap
+    private static final int ENGAGEMENT_CHUNK_SIZE = 150;
+
+    // NOTIFY payloads are capped at 8000 bytes
+    private static final int MAX_PAYLOAD_BYTES = 7900;
+
+    private final DataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+    private final ChatService chatService;
+    private final ChatBroadcaster chatBroadcaster;
+    private final RecentMessageCache recentMessageCache;
+    private final FeedStreamService feedStreamService;
+    private final TimelineService timelineService;
+    private final PresenceRegistry presenceRegistry;
+    private final HotFeedRanking hotFeedRanking;
+    private final ObjectMapper objectMapper;
+
+    private final String nodeId = UUID.randomUUID().toString();
+    private volatile boolean enabled;
+    private volatile boolean running = true;
+    private Thread listener;
+
+    // postId -> {likeDelta, commentDelta} not yet announced
+    private final ConcurrentHashMap<Long, long[]> pendingEngagement = new ConcurrentHashMap<>();
+
+    private final AtomicLong published = new AtomicLong();
+    private final AtomicLong received = new AtomicLong();
+    private final AtomicLong postsPublished = new AtomicLong();
+    private final AtomicLong postsReceived = new AtomicLong();
+    private final AtomicLong presencePublished = new AtomicLong();
+    private final AtomicLong presenceReceived = new AtomicLong();
+    private final AtomicLong reconnects = new AtomicLong();
+
+    @Value("${chat.cluster.enabled:true}")
+    private boolean clusterEnabled;
+
+    @Value("${chat.cluster.poll-timeout-ms:500}")
+    private int pollTimeoutMs;
+
+    public ChatClusterBridge(DataSource dataSource, JdbcTemplate jdbcTemplate, ChatService chatService,
+                             ChatBroadcaster chatBroadcaster, RecentMessageCache recentMessageCache,
+                             FeedStreamService feedStreamService, TimelineService timelineService,
+                             PresenceRegistry presenceRegistry, HotFeedRanking hotFeedRanking,
+                             ObjectMapper objectMapper) {
+        this.dataSource = dataSource;
+        this.jdbcTemplate = jdbcTemplate;
+        this.chatService = chatService;
+        this.chatBroadcaster = chatBroadcaster;
+        this.recentMessageCache = recentMessageCache;
+        this.feedStreamService = feedStreamService;
+        this.timelineService = timelineService;
+        this.presenceRegistry = presenceRegistry;
+        this.hotFeedRanking = hotFeedRanking;
+        this.objectMapper = objectMapper;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!clusterEnabled || !isPostgres()) {
+            return;
+        }
+        enabled = true;
+        listener = new Thread(this::listen, "chat-cluster-listener");
+        listener.setDaemon(true);
+        listener.start();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onMessageSent(ChatMessageSentEvent event) {
+        if (!enabled) {
+            return;
+        }
+        String payload = nodeId + ":" + event.getChatRoomId() + ":" + event.getMessage().getMessageId();
+        try {
+            jdbcTemplate.queryForObject("SELECT pg_notify(?, ?)", Object.class, CHAT_CHANNEL, payload);
+            published.incrementAndGet();
+        } catch (RuntimeException e) {
+            // Local delivery already happened; remote clients catch up on their next resync
+            System.err.println("Failed to publish chat message " + event.getMessage().getMessageId() + ": " + e.getMessage());
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPostCreated(PostCreatedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        try {
+            String payload = postPayload(event, event.getAuthorDpUrl());
+            if (payload.getBytes(StandardCharsets.UTF_8).length > MAX_PAYLOAD_BYTES) {
+                payload = postPayload(event, null);
+            }
+            jdbcTemplate.queryForObject("SELECT pg_notify(?, ?)", Object.class, POST_CHANNEL, payload);
+            postsPublished.incrementAndGet();
+        } catch (JsonProcessingException | RuntimeException e) {
+            // Local subscribers were notified; remote timelines pick the post up when they expire
+            System.err.println("Failed to publish post " + event.getPostId() + ": " + e.getMessage());
+        }
+    }
+
+    // A viral post would otherwise cost one NOTIFY per like on every node
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onEngagement(PostEngagementEvent event) {
+        if (!enabled) {
+            return;
+        }
+        pendingEngagement.compute(event.getPostId(), (id, deltas) -> {
+            long[] sum = deltas != null ? deltas : new long[2];
+            sum[0] += event.getLikeDelta();
+            sum[1] += event.getCommentDelta();
+            return sum;
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${chat.cluster.engagement-flush-ms:1000}")
+    public void announceEngagement() {
+        if (!enabled || pendingEngagement.isEmpty()) {
+            return;
+        }
+        List<long[]> drained = new ArrayList<>();
+        for (Long postId : pendingEngagement.keySet()) {
+            long[] deltas = pendingEngagement.remove(postId);
+            if (deltas != null && (deltas[0] != 0 || deltas[1] != 0)) {
+                drained.add(new long[] {postId, deltas[0], deltas[1]});
+            }
+        }
+        for (int from = 0; from < drained.size(); from += ENGAGEMENT_CHUNK_SIZE) {
+            Map<String, Object> payload = new LinkedHashMap<>();
+            payload.put("nodeId", nodeId);
+            payload.put("type", "engagement");
+            payload.put("deltas", drained.subList(from, Math.min(from + ENGAGEMENT_CHUNK_SIZE, drained.size())));
+            notifyPost(payload);
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPostDeleted(PostDeletedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("nodeId", nodeId);
+        payload.put("type", "deleted");
+        payload.put("postId", event.getPostId());
+        notifyPost(payload);
+    }
+
+    @EventListener
+    public void onPresenceChanged(PresenceChangedEvent event) {
+        notifyPresence(nodeId + ":P:" + event.getUserId() + ":" + (event.isOnline() ? 1 : 0));
+    }
+
+    @EventListener
+    public void onTypingChanged(TypingChangedEvent event) {
+        notifyPresence(nodeId + ":T:" + event.getChatRoomId() + ":" + event.getUserId() + ":" + (event.isTyping() ? 1 : 0));
+    }
+
+    // Well inside the presence TTL, so a node's users stay online elsewhere between refreshes
+    @Scheduled(fixedDelayString = "${chat.cluster.presence-refresh-ms:20000}")
+    public void announcePresence() {
+        if (!enabled) {
+            return;
+        }
+        List<Long> userIds = presenceRegistry.getLocallyOnlineUserIds();
+        for (int from = 0; from < userIds.size(); from += SNAPSHOT_CHUNK_SIZE) {
+            StringBuilder payload = new StringBuilder(nodeId).append(":S:");
+            List<Long> chunk = userIds.subList(from, Math.min(from + SNAPSHOT_CHUNK_SIZE, userIds.size()));
+            for (int i = 0; i < chunk.size(); i++) {
+                payload.append(i > 0 ? "," : "").append(chunk.get(i));
+            }
+            notifyPresence(payload.toString());
+        }
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new HashMap<>();
+        metrics.put("enabled", enabled);
+        metrics.put("nodeId", nodeId);
+        metrics.put("published", published.get());
+        metrics.put("received", received.get());
+        metrics.put("postsPublished", postsPublished.get());
+        metrics.put("postsReceived", postsReceived.get());
+        metrics.put("presencePublished", presencePublished.get());
+        metrics.put("presenceReceived", presenceReceived.get());
+        metrics.put("reconnects", reconnects.get());
+        return metrics;
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        if (listener != null) {
+            listener.join(pollTimeoutMs * 2L);
+        }
+    }
+
+    // Holds one dedicated connection for LISTEN; reconnects with a short backoff
+    private void listen() {
+        boolean firstConnect = true;
+        while (running) {
+            try (Connection connection = dataSource.getConnection()) {
+                connection.setAutoCommit(true);
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + CHAT_CHANNEL);
+                    statement.execute("LISTEN " + POST_CHANNEL);
+                    statement.execute("LISTEN " + PRESENCE_CHANNEL);
+                }
+                if (!firstConnect) {
+                    // Notifications may have been missed while disconnected
+                    recentMessageCache.clear();
+                    timelineService.invalidateAll();
+                    // Re-read the ranking's candidates and their stored counts
+                    hotFeedRanking.seed();
+                    reconnects.incrementAndGet();
+                }
+                firstConnect = false;
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                while (running) {
+                    PGNotification[] notifications = pgConnection.getNotifications(pollTimeoutMs);
+                    if (notifications != null && notifications.length > 0) {
+                        deliver(notifications);
+                    }
+                }
+            } catch (SQLException | RuntimeException e) {
+                if (!running) {
+                    return;
+                }
+                System.err.println("Chat cluster listener disconnected: " + e.getMessage());
+                try {
+                    Thread.sleep(1000);
+                } catch (InterruptedException interrupted) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private void deliver(PGNotification[] notifications) {
+        List<Long> messageIds = new ArrayList<>(notifications.length);
+        for (PGNotification notification : notifications) {
+            if (POST_CHANNEL.equals(notification.getName())) {
+                deliverPost(notification.getParameter());
+                continue;
+            }
+            if (PRESENCE_CHANNEL.equals(notification.getName())) {
+                deliverPresence(notification.getParameter());
+                continue;
+            }
+            String[] parts = notification.getParameter().split(":");
+            if (parts.length == 3 && !parts[0].equals(nodeId)) {
+                messageIds.add(Long.valueOf(parts[2]));
+            }
+        }
+        if (messageIds.isEmpty()) {
+            return;
+        }
+        // One query for the whole burst, then local delivery only; never re-notified
+        for (MessageResponse message : chatService.getMessagesByIds(messageIds)) {
+            recentMessageCache.append(message);
+            chatBroadcaster.broadcast(message);
+        }
+        received.addAndGet(messageIds.size());
+    }
+
+    private void deliverPost(String payload) {
+        try {
+            JsonNode node = objectMapper.readTree(payload);
+            if (nodeId.equals(node.path("nodeId").asText())) {
+                return;
+            }
+            String type = node.path("type").asText("created");
+            if (type.equals("deleted")) {
+                hotFeedRanking.remove(node.path("postId").asLong());
+                postsReceived.incrementAndGet();
+                return;
+            }
+            if (type.equals("engagement")) {
+                for (JsonNode deltas : node.path("deltas")) {
+                    hotFeedRanking.onEngagement(new PostEngagementEvent(
+                            deltas.path(0).asLong(), deltas.path(1).asLong(), deltas.path(2).asLong()));
+                }
+                postsReceived.incrementAndGet();
+                return;
+            }
+            PostCreatedEvent event = new PostCreatedEvent(
+                    node.path("postId").asLong(),
+                    node.path("authorId").asLong(),
+                    AuthorType.valueOf(node.path("authorType").asText()),
+                    node.path("authorName").isNull() ? null : node.path("authorName").asText(),
+                    node.path("authorDpUrl").isNull() ? null : node.path("authorDpUrl").asText(),
+                    node.path("createdAt").isNumber() ? Instant.ofEpochMilli(node.path("createdAt").asLong()) : null);
+            // Called directly, so it is delivered locally and never re-notified
+            feedStreamService.onPostCreated(event);
+            timelineService.onPostCreated(event);
+            hotFeedRanking.onPostCreated(event);
+            postsReceived.incrementAndGet();
+        } catch (JsonProcessingException | IllegalArgumentException e) {
+            System.err.println("Ignoring malformed post notification: " + e.getMessage());
+        }
+    }
+
+    private void deliverPresence(String payload) {
+        String[] parts = payload.split(":");
+        if (parts.length < 3 || parts[0].equals(nodeId)) {
+            return;
+        }
+        try {
+            switch (parts[1]) {
+                case "P" -> presenceRegistry.applyRemotePresence(parts[0], Long.valueOf(parts[2]), "1".equals(parts[3]));
+                case "T" -> presenceRegistry.applyRemoteTyping(Long.valueOf(parts[2]), Long.valueOf(parts[3]), "1".equals(parts[4]));
+                case "S" -> {
+                    List<Long> userIds = new ArrayList<>();
+                    for (String userId : parts[2].split(",")) {
+                        userIds.add(Long.valueOf(userId));
+                    }
+                    presenceRegistry.refreshRemotePresence(parts[0], userIds);
+                }
+                default -> {
+                    return;
+                }
+            }
+            presenceReceived.incrementAndGet();
+        } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+            System.err.println("Ignoring malformed presence notification: " + payload);
+        }
+    }
+
+    // Presence is soft state; a lost notification is corrected by the next refresh or expiry
+    private void notifyPresence(String payload) {
+        if (!enabled) {
+            return;
+        }
+        try {
+            jdbcTemplate.queryForObject("SELECT pg_notify(?, ?)", Object.class, PRESENCE_CHANNEL, payload);
+            presencePublished.incrementAndGet();
+        } catch (RuntimeException e) {
+            System.err.println("Failed to publish presence change: " + e.getMessage());
+        }
+    }
+
+    private void notifyPost(Map<String, Object> payload) {
+        try {
+            jdbcTemplate.queryForObject("SELECT pg_notify(?, ?)", Object.class, POST_CHANNEL,
+                    objectMapper.writeValueAsString(payload));
+            postsPublished.incrementAndGet();
+        } catch (JsonProcessingException | RuntimeException e) {
+            // Other nodes' rankings catch up when their listener reconnects and re-seeds, or on restart
+            System.err.println("Failed to publish post " + payload.get("type") + ": " + e.getMessage());
+        }
+    }
+
+    private String postPayload(PostCreatedEvent event, String authorDpUrl) throws JsonProcessingException {
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("nodeId", nodeId);
+        payload.put("postId", event.getPostId());
+        payload.put("authorId", event.getAuthorId());
+        payload.put("authorType", event.getAuthorType().name());
+        payload.put("authorName", event.getAuthorName());
+        payload.put("authorDpUrl", authorDpUrl);
+        payload.put("createdAt", event.getCreatedAt() == null ? null : event.getCreatedAt().toEpochMilli());
+        return objectMapper.writeValueAsString(payload);
+    }
+
+    private boolean isPostgres() {
+        try (Connection connection = dataSource.getConnection()) {
+            return connection.getMetaData().getDatabaseProductName().toLowerCase().contains("postgres");
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.unisocial.services;
+
+import com.unisocial.repositories.ChatParticipantRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Caches "may this user post in this room" for the send path, together with the
+ * sender's display name, so a burst of messages costs one lookup per sender.
+ * Only positive answers are cached; a removed member can keep posting for at
+ * most the TTL.
+ */
+@Service
+public class ChatMembershipCache {
+
+    private final ChatParticipantRepository chatParticipantRepository;
+    private final Map<Key, Entry> entries = new ConcurrentHashMap<>();
+
+    @Value("${chat.membership-cache.ttl-ms:300000}")
+    private long ttlMs;
+
+    @Value("${chat.membership-cache.max-entries:50000}")
+    private int maxEntries;
+
+    public ChatMembershipCache(ChatParticipantRepository chatParticipantRepository) {
+        this.chatParticipantRepository = chatParticipantRepository;
+    }
+
+    /**
+     * @return the sender's name
+     * @throws RuntimeException when the user may not post in the room
+     */
+    public String requireMember(Long chatRoomId, Long userId) {
+        Key key = new Key(chatRoomId, userId);
+        long now = System.currentTimeMillis();
+        Entry entry = entries.get(key);
+        if (entry != null && entry.expiresAt > now) {
+            return entry.senderName;
+        }
+        String senderName = chatParticipantRepository.findSenderNameIfAllowed(chatRoomId, userId)
+                .orElseThrow(() -> new RuntimeException("Not a participant of chat room " + chatRoomId));
+        if (entries.size() >= maxEntries) {
+            evictExpired();
+        }
+        if (entries.size() < maxEntries) {
+            entries.put(key, new Entry(senderName, now + ttlMs));
+        }
+        return senderName;
+    }
+
+    public void invalidateRoom(Long chatRoomId) {
+        entries.keySet().removeIf(key -> key.chatRoomId == chatRoomId);
+    }
+
+    @Scheduled(fixedDelayString = "${chat.membership-cache.sweep-ms:60000}")
+    public void evictExpired() {
+        long now = System.currentTimeMillis();
+        entries.values().removeIf(entry -> entry.expiresAt <= now);
+    }
+
+    private static final class Key {
+        private final long chatRoomId;
+        private final long userId;
+
+        Key(long chatRoomId, long userId) {
+            this.chatRoomId = chatRoomId;
+            this.userId = userId;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key other && other.chatRoomId == chatRoomId && other.userId == userId;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(chatRoomId) * 31 + Long.hashCode(userId);
+        }
+    }
+
+    private static class Entry {
+        private final String senderName;
+        private final long expiresAt;
+
+        Entry(String senderName, long expiresAt) {
+            this.senderName = senderName;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
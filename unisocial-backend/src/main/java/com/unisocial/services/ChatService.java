@@ -3,97 +3,206 @@ package com.unisocial.services;
 import com.unisocial.models.*;
 import com.unisocial.repositories.*;
 import com.unisocial.dto.*;
+import com.unisocial.events.ChatMessageSentEvent;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 @Service
 @Transactional
 public class ChatService {
 
+    private static final int DEFAULT_PAGE_SIZE = 50;
+    private static final int MAX_PAGE_SIZE = 200;
+
     private final ChatRoomRepository chatRoomRepository;
     private final ChatParticipantRepository chatParticipantRepository;
     private final MessageRepository messageRepository;
     private final UserRepository userRepository;
     private final ClubRepository clubRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final RecentMessageCache recentMessageCache;
+    private final ChatMembershipCache chatMembershipCache;
+    private final MessageWriteBatcher messageWriteBatcher;
+    private final GroupChatSyncService groupChatSyncService;
+    private final MessageArchive messageArchive;
 
     public ChatService(ChatRoomRepository chatRoomRepository,
                        ChatParticipantRepository chatParticipantRepository,
                        MessageRepository messageRepository,
                        UserRepository userRepository,
-                       ClubRepository clubRepository) {
+                       ClubRepository clubRepository,
+                       ApplicationEventPublisher eventPublisher,
+                       TransactionTemplate transactionTemplate,
+                       RecentMessageCache recentMessageCache,
+                       ChatMembershipCache chatMembershipCache,
+                       MessageWriteBatcher messageWriteBatcher,
+                       GroupChatSyncService groupChatSyncService,
+                       MessageArchive messageArchive) {
         this.chatRoomRepository = chatRoomRepository;
         this.chatParticipantRepository = chatParticipantRepository;
         this.messageRepository = messageRepository;
         this.userRepository = userRepository;
         this.clubRepository = clubRepository;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = transactionTemplate;
+        this.recentMessageCache = recentMessageCache;
+        this.chatMembershipCache = chatMembershipCache;
+        this.messageWriteBatcher = messageWriteBatcher;
+        this.groupChatSyncService = groupChatSyncService;
+        this.messageArchive = messageArchive;
     }
 
+    /**
+     * Finds or creates the PRIVATE room of two users with one lookup on the
+     * canonical (smaller id, larger id) pair. The unique index on the pair makes
+     * concurrent first messages converge on a single room.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public ChatRoomResponse createPrivateChat(Long user1Id, Long user2Id) {
-        // Check if a private chat already exists between these two users
-        List<ChatParticipant> user1Chats = chatParticipantRepository.findByUser_UserId(user1Id);
-        List<ChatParticipant> user2Chats = chatParticipantRepository.findByUser_UserId(user2Id);
-        
-        for (ChatParticipant p1 : user1Chats) {
-            ChatRoom room = p1.getChatRoom();
-            if (room.getType() == ChatType.PRIVATE) {
-                // Check if user2 is also in this room
-                for (ChatParticipant p2 : user2Chats) {
-                    if (p2.getChatRoom().getChatRoomId().equals(room.getChatRoomId())) {
-                        // Found existing private chat
-                        return convertToChatRoomResponse(room);
-                    }
-                }
+        if (user1Id.equals(user2Id)) {
+            throw new RuntimeException("Cannot start a private chat with yourself");
+        }
+        Long low = Math.min(user1Id, user2Id);
+        Long high = Math.max(user1Id, user2Id);
+
+        Long roomId = chatRoomRepository.findPrivateRoomId(low, high).orElse(null);
+        if (roomId == null) {
+            try {
+                roomId = transactionTemplate.execute(status -> createPrivateRoom(low, high));
+            } catch (DataIntegrityViolationException e) {
+                // Lost the race to another request creating the same pair
+                roomId = chatRoomRepository.findPrivateRoomId(low, high).orElseThrow(() -> e);
             }
         }
-        
-        // Create a new PRIVATE room and add both participants
+        Long chatRoomId = roomId;
+        return transactionTemplate.execute(status -> convertToChatRoomResponse(
+                chatRoomRepository.findById(chatRoomId)
+                        .orElseThrow(() -> new RuntimeException("Chat room not found: " + chatRoomId))));
+    }
+
+    private Long createPrivateRoom(Long low, Long high) {
         ChatRoom room = new ChatRoom();
         room.setType(ChatType.PRIVATE);
-        ChatRoom saved = chatRoomRepository.save(room);
+        room.setPrivateUserLow(low);
+        room.setPrivateUserHigh(high);
+        ChatRoom saved = chatRoomRepository.saveAndFlush(room);
 
         ChatParticipant p1 = new ChatParticipant();
         p1.setChatRoom(saved);
-        p1.setUser(userRepository.getReferenceById(user1Id));
+        p1.setUser(userRepository.getReferenceById(low));
         chatParticipantRepository.save(p1);
 
         ChatParticipant p2 = new ChatParticipant();
         p2.setChatRoom(saved);
-        p2.setUser(userRepository.getReferenceById(user2Id));
+        p2.setUser(userRepository.getReferenceById(high));
         chatParticipantRepository.save(p2);
 
-        return convertToChatRoomResponse(saved);
+        return saved.getChatRoomId();
     }
 
+    /**
+     * Gives PRIVATE rooms created before the pair key existed their key. If older
+     * duplicates exist for a pair, only the first one is keyed.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillPrivateRoomKeys() {
+        for (Object[] row : chatRoomRepository.findUnkeyedPrivateRoomPairs()) {
+            Long chatRoomId = (Long) row[0];
+            Long low = (Long) row[1];
+            Long high = (Long) row[2];
+            if (!low.equals(high) && chatRoomRepository.findPrivateRoomId(low, high).isEmpty()) {
+                chatRoomRepository.setPrivatePair(chatRoomId, low, high);
+            }
+        }
+    }
+
+    /**
+     * Participants from before read cursors existed have a NULL cursor; without this
+     * their whole history would show as unread. Only NULL cursors are touched, so
+     * later starts update nothing.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillReadCursors() {
+        int updated = chatParticipantRepository.backfillReadCursors();
+        if (updated > 0) {
+            System.out.println("Initialized read cursors of " + updated + " chat participants");
+        }
+    }
+
+    /**
+     * Returns the club's group room, creating it if needed. Participants are synced
+     * from approved memberships in the background after commit.
+     */
     public ChatRoom createGroupChat(Long clubId) {
         Club club = clubRepository.findById(clubId)
                 .orElseThrow(() -> new RuntimeException("Club not found: " + clubId));
-        ChatRoom room = new ChatRoom();
-        room.setType(ChatType.GROUP);
-        room.setClub(club);
-        return chatRoomRepository.save(room);
+        ChatRoom room = chatRoomRepository.findByTypeAndClub_ClubId(ChatType.GROUP, clubId).orElse(null);
+        if (room == null) {
+            room = new ChatRoom();
+            room.setType(ChatType.GROUP);
+            room.setClub(club);
+            room = chatRoomRepository.save(room);
+        }
+        groupChatSyncService.scheduleRoomSync(room.getChatRoomId(), clubId);
+        return room;
     }
 
+    /**
+     * Sends a message without loading the room or sender: membership and the sender's
+     * name come from the membership cache, and the insert joins the next group-commit
+     * batch. No transaction or connection is held while the batch is written.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public MessageResponse sendMessage(Long chatRoomId, Long senderId, String content) {
-        ChatRoom room = chatRoomRepository.findById(chatRoomId)
-                .orElseThrow(() -> new RuntimeException("Chat room not found: " + chatRoomId));
-        User sender = userRepository.findById(senderId)
-                .orElseThrow(() -> new RuntimeException("Sender not found: " + senderId));
+        if (content == null || content.isBlank()) {
+            throw new RuntimeException("Message content is required");
+        }
+        String senderName = chatMembershipCache.requireMember(chatRoomId, senderId);
 
         Message message = new Message();
-        message.setChatRoom(room);
-        message.setSender(sender);
+        message.setChatRoom(chatRoomRepository.getReferenceById(chatRoomId));
+        message.setSender(userRepository.getReferenceById(senderId));
         message.setContent(content);
-        Message saved = messageRepository.save(message);
+        message.setTimestamp(Instant.now());
+        message.setRead(false);
+        // A write that commits after the timeout is still broadcast, cached and sent to other nodes
+        Message saved = messageWriteBatcher.write(message, late -> publishSent(late, chatRoomId, senderId, senderName));
+        return publishSent(saved, chatRoomId, senderId, senderName);
+    }
 
-        // Message saved to database - frontend will poll for updates
-        return convertToMessageResponse(saved);
+    // Already committed, so listeners run immediately and push to WebSocket subscribers
+    private MessageResponse publishSent(Message saved, Long chatRoomId, Long senderId, String senderName) {
+        MessageResponse response = new MessageResponse(saved.getMessageId(), chatRoomId, senderId, senderName,
+                saved.getContent(), saved.getTimestamp(), saved.getRead());
+        eventPublisher.publishEvent(new ChatMessageSentEvent(response));
+        return response;
     }
 
     @Transactional(readOnly = true)
     public List<MessageResponse> getMessages(Long chatRoomId) {
+        Optional<List<MessageResponse>> cached = recentMessageCache.getAllIfComplete(chatRoomId);
+        if (cached.isPresent()) {
+            return cached.get();
+        }
         List<Message> messages = messageRepository.findByChatRoom_ChatRoomIdOrderByTimestampAsc(chatRoomId);
         return messages.stream()
                 .map(this::convertToMessageResponse)
@@ -101,49 +210,171 @@ public class ChatService {
     }
 
     @Transactional(readOnly = true)
-    public List<ChatRoomResponse> getUserChatRooms(Long userId) {
-        List<ChatParticipant> participants = chatParticipantRepository.findByUser_UserId(userId);
-        
-        // Deduplicate by chatRoomId to avoid showing the same chat multiple times
-        java.util.Map<Long, ChatRoom> uniqueRooms = new java.util.LinkedHashMap<>();
-        for (ChatParticipant participant : participants) {
-            ChatRoom room = participant.getChatRoom();
-            uniqueRooms.putIfAbsent(room.getChatRoomId(), room);
-        }
-        
-        return uniqueRooms.values().stream()
-                .map(this::convertToChatRoomResponse)
+    public List<MessageResponse> getMessagesByIds(Collection<Long> messageIds) {
+        return messageRepository.findAllWithSenderByIds(messageIds).stream()
+                .map(this::convertToMessageResponse)
                 .collect(Collectors.toList());
     }
-    
+
+    /**
+     * One page of a room's history, oldest first. With neither cursor the latest page
+     * is returned; "after" fetches only messages newer than the client has seen.
+     * Latest and "after" pages of hot rooms are answered from the recent-message
+     * cache; SUPPORTS keeps a cache hit from opening a transaction. Scrolling back
+     * past the oldest message still in the database continues into archived segments.
+     */
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+    public MessagePageResponse getMessagePage(Long chatRoomId, Long before, Long after, Integer limit) {
+        if (before != null && after != null) {
+            throw new RuntimeException("Use either before or after, not both");
+        }
+        int pageSize = limit == null || limit <= 0 ? DEFAULT_PAGE_SIZE : Math.min(limit, MAX_PAGE_SIZE);
+        if (before == null) {
+            Supplier<List<MessageResponse>> loader = () -> messageRepository
+                    .findLatest(chatRoomId, PageRequest.of(0, recentMessageCache.getMessagesPerRoom())).stream()
+                    .map(this::convertToMessageResponse)
+                    .collect(Collectors.toList());
+            Optional<List<MessageResponse>> cached = after != null
+                    ? recentMessageCache.getAfter(chatRoomId, after, pageSize + 1, loader)
+                    : recentMessageCache.getLatest(chatRoomId, pageSize + 1, loader);
+            if (cached.isPresent()) {
+                List<MessageResponse> page = cached.get();
+                boolean hasMore = page.size() > pageSize;
+                if (hasMore) {
+                    // Drop the extra message on the far side from the cursor
+                    page = after != null ? page.subList(0, pageSize) : page.subList(1, page.size());
+                } else if (after == null) {
+                    // A fully cached room may still have archived history further back; fill the
+                    // page from it, so a room whose messages were all archived still shows them
+                    return fillFromArchive(chatRoomId, page, pageSize);
+                }
+                return new MessagePageResponse(page, hasMore);
+            }
+        }
+        // Fetch one extra row to know whether another page exists
+        PageRequest page = PageRequest.of(0, pageSize + 1);
+        List<Message> messages;
+        if (after != null) {
+            messages = messageRepository.findPageAfter(chatRoomId, after, page);
+        } else if (before != null) {
+            messages = messageRepository.findPageBefore(chatRoomId, before, page);
+        } else {
+            messages = messageRepository.findLatest(chatRoomId, page);
+        }
+        List<MessageResponse> responses = messages.stream()
+                .map(this::convertToMessageResponse)
+                .collect(Collectors.toList());
+        if (after == null && responses.size() <= pageSize) {
+            // The database has nothing older; continue into the archived months
+            long archiveBefore = responses.isEmpty()
+                    ? (before != null ? before : Long.MAX_VALUE)
+                    : responses.get(responses.size() - 1).getMessageId();
+            responses.addAll(messageArchive.readBefore(chatRoomId, archiveBefore, pageSize + 1 - responses.size()));
+        }
+        boolean hasMore = responses.size() > pageSize;
+        if (hasMore) {
+            responses = responses.subList(0, pageSize);
+        }
+        if (after == null) {
+            // Newest-first pages are reversed so every page reads oldest first
+            Collections.reverse(responses);
+        }
+        return new MessagePageResponse(responses, hasMore);
+    }
+
+    // Prepends archived messages older than the oldest of an oldest-first page, up to pageSize
+    private MessagePageResponse fillFromArchive(Long chatRoomId, List<MessageResponse> page, int pageSize) {
+        long archiveBefore = page.isEmpty() ? Long.MAX_VALUE : page.get(0).getMessageId();
+        int remaining = pageSize - page.size();
+        List<MessageResponse> archived = messageArchive.readBefore(chatRoomId, archiveBefore, remaining + 1);
+        boolean hasMore = archived.size() > remaining;
+        if (hasMore) {
+            archived = archived.subList(0, remaining);
+        }
+        List<MessageResponse> filled = new ArrayList<>(archived);
+        Collections.reverse(filled);
+        filled.addAll(page);
+        return new MessagePageResponse(filled, hasMore);
+    }
+
+    /**
+     * The user's rooms built with a fixed number of queries: rooms with clubs,
+     * participants with users, and the last message of every room.
+     */
+    @Transactional(readOnly = true)
+    public List<ChatRoomResponse> getUserChatRooms(Long userId) {
+        List<ChatRoomResponse> rooms = convertToChatRoomResponses(chatRoomRepository.findRoomsWithClubByUserId(userId));
+        Map<Long, Long> unreadByRoom = new HashMap<>();
+        for (Object[] row : chatParticipantRepository.countUnreadByRoom(userId)) {
+            unreadByRoom.put((Long) row[0], ((Number) row[1]).longValue());
+        }
+        for (ChatRoomResponse room : rooms) {
+            room.setUnreadCount(unreadByRoom.getOrDefault(room.getChatRoomId(), 0L));
+        }
+        return rooms;
+    }
+
+    /**
+     * Moves the user's read cursor in a room with one UPDATE. Without a message id
+     * the cursor moves to the room's newest message.
+     */
+    public void markRead(Long chatRoomId, Long userId, Long messageId) {
+        // A cursor past the room's newest message would hide future messages from the unread count
+        if (messageId != null && !messageRepository.existsByMessageIdAndChatRoom_ChatRoomId(messageId, chatRoomId)) {
+            throw new RuntimeException("Message " + messageId + " is not in chat room " + chatRoomId);
+        }
+        int updated = messageId != null
+                ? chatParticipantRepository.advanceReadCursor(chatRoomId, userId, messageId)
+                : chatParticipantRepository.advanceReadCursorToLatest(chatRoomId, userId);
+        if (updated == 0 && !chatParticipantRepository.existsByChatRoom_ChatRoomIdAndUser_UserId(chatRoomId, userId)) {
+            throw new RuntimeException("Not a participant of chat room " + chatRoomId);
+        }
+    }
+
     private ChatRoomResponse convertToChatRoomResponse(ChatRoom chatRoom) {
-        // Get participants
-        List<ChatParticipant> participants = chatParticipantRepository.findByChatRoom_ChatRoomId(chatRoom.getChatRoomId());
-        List<UserResponse> userResponses = participants.stream()
-                .map(p -> convertToUserResponse(p.getUser()))
+        return convertToChatRoomResponses(List.of(chatRoom)).get(0);
+    }
+
+    private List<ChatRoomResponse> convertToChatRoomResponses(List<ChatRoom> rooms) {
+        if (rooms.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<Long> roomIds = rooms.stream().map(ChatRoom::getChatRoomId).collect(Collectors.toList());
+
+        Map<Long, List<UserResponse>> participantsByRoom = new HashMap<>();
+        for (ChatParticipant participant : chatParticipantRepository.findWithUsersByChatRoomIds(roomIds)) {
+            participantsByRoom.computeIfAbsent(participant.getChatRoom().getChatRoomId(), id -> new ArrayList<>())
+                    .add(convertToUserResponse(participant.getUser()));
+        }
+
+        // Previews of cached rooms come from memory; only the rest are queried
+        Map<Long, MessageResponse> lastMessageByRoom = recentMessageCache.getLastMessages(roomIds);
+        List<Long> uncachedRoomIds = roomIds.stream()
+                .filter(id -> !lastMessageByRoom.containsKey(id))
                 .collect(Collectors.toList());
-        
-        // Get last message and convert to MessageResponse
-        Message lastMessage = messageRepository.findLastMessageByChatRoomId(chatRoom.getChatRoomId());
-        MessageResponse lastMessageResponse = null;
-        if (lastMessage != null) {
-            lastMessageResponse = convertToMessageResponse(lastMessage);
-        }
-        
-        // Convert club if it's a group chat
-        ClubResponse clubResponse = null;
-        if (chatRoom.getType() == ChatType.GROUP && chatRoom.getClub() != null) {
-            clubResponse = convertToClubResponse(chatRoom.getClub());
-        }
-        
-        return new ChatRoomResponse(
-                chatRoom.getChatRoomId(),
-                chatRoom.getType(),
-                clubResponse,
-                chatRoom.getCreatedAt(),
-                lastMessageResponse,
-                userResponses
-        );
+        if (!uncachedRoomIds.isEmpty()) {
+            for (Message message : messageRepository.findLastMessagesByChatRoomIds(uncachedRoomIds)) {
+                lastMessageByRoom.put(message.getChatRoom().getChatRoomId(), convertToMessageResponse(message));
+            }
+        }
+
+        List<ChatRoomResponse> responses = new ArrayList<>(rooms.size());
+        for (ChatRoom chatRoom : rooms) {
+            // Convert club if it's a group chat
+            ClubResponse clubResponse = null;
+            if (chatRoom.getType() == ChatType.GROUP && chatRoom.getClub() != null) {
+                clubResponse = convertToClubResponse(chatRoom.getClub());
+            }
+            responses.add(new ChatRoomResponse(
+                    chatRoom.getChatRoomId(),
+                    chatRoom.getType(),
+                    clubResponse,
+                    chatRoom.getCreatedAt(),
+                    lastMessageByRoom.get(chatRoom.getChatRoomId()),
+                    participantsByRoom.getOrDefault(chatRoom.getChatRoomId(), Collections.emptyList())
+            ));
+        }
+        return responses;
     }
     
     private MessageResponse convertToMessageResponse(Message message) {
@@ -1,6 +1,7 @@
 package com.unisocial.services;
 
 import com.unisocial.dto.ClubMembershipResponse;
+import com.unisocial.events.ClubMembershipChangedEvent;
 import com.unisocial.models.Club;
 import com.unisocial.models.ClubMembership;
 import com.unisocial.models.ClubRole;
@@ -9,6 +10,7 @@ import com.unisocial.models.User;
 import com.unisocial.repositories.ClubMembershipRepository;
 import com.unisocial.repositories.ClubRepository;
 import com.unisocial.repositories.UserRepository;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -22,13 +24,19 @@ public class ClubMembershipService {
     private final ClubMembershipRepository clubMembershipRepository;
     private final ClubRepository clubRepository;
     private final UserRepository userRepository;
+    private final TimelineService timelineService;
+    private final ApplicationEventPublisher eventPublisher;
 
     public ClubMembershipService(ClubMembershipRepository clubMembershipRepository, 
                                ClubRepository clubRepository,
-                               UserRepository userRepository) {
+                               UserRepository userRepository,
+                               TimelineService timelineService,
+                               ApplicationEventPublisher eventPublisher) {
         this.clubMembershipRepository = clubMembershipRepository;
         this.clubRepository = clubRepository;
         this.userRepository = userRepository;
+        this.timelineService = timelineService;
+        this.eventPublisher = eventPublisher;
     }
 
     public ClubMembershipResponse approveMembership(Long membershipId, User clubAdmin) {
@@ -42,6 +50,10 @@ public class ClubMembershipService {
 
         membership.setStatus(MembershipStatus.APPROVED);
         ClubMembership savedMembership = clubMembershipRepository.save(membership);
+        // The new member's timeline is rebuilt with the club's posts on their next read
+        timelineService.invalidate(membership.getUser().getUserId());
+        eventPublisher.publishEvent(new ClubMembershipChangedEvent(
+                membership.getClub().getClubId(), membership.getUser().getUserId(), true));
 
         return convertToResponse(savedMembership);
     }
@@ -57,6 +69,8 @@ public class ClubMembershipService {
 
         membership.setStatus(MembershipStatus.REJECTED);
         ClubMembership savedMembership = clubMembershipRepository.save(membership);
+        eventPublisher.publishEvent(new ClubMembershipChangedEvent(
+                membership.getClub().getClubId(), membership.getUser().getUserId(), false));
 
         return convertToResponse(savedMembership);
     }
@@ -184,6 +198,8 @@ public class ClubMembershipService {
 
         ClubMembershipResponse response = convertToResponse(membership);
         clubMembershipRepository.delete(membership);
+        timelineService.invalidate(targetUserId);
+        eventPublisher.publishEvent(new ClubMembershipChangedEvent(clubId, targetUserId, false));
         return response;
     }
 
@@ -7,7 +7,9 @@ import com.unisocial.models.ClubMembership;
 import com.unisocial.models.ClubRole;
 import com.unisocial.models.MembershipStatus;
 import com.unisocial.models.Role;
+import com.unisocial.models.TargetType;
 import com.unisocial.models.User;
+import com.unisocial.models.UserAction;
 import com.unisocial.repositories.ClubMembershipRepository;
 import com.unisocial.repositories.ClubRepository;
 import com.unisocial.repositories.UserRepository;
@@ -24,12 +26,14 @@ public class ClubService {
     private final ClubRepository clubRepository;
     private final ClubMembershipRepository clubMembershipRepository;
     private final UserRepository userRepository;
+    private final InteractionRecorder interactionRecorder;
 
     public ClubService(ClubRepository clubRepository, ClubMembershipRepository clubMembershipRepository, 
-                     UserRepository userRepository) {
+                     UserRepository userRepository, InteractionRecorder interactionRecorder) {
         this.clubRepository = clubRepository;
         this.clubMembershipRepository = clubMembershipRepository;
         this.userRepository = userRepository;
+        this.interactionRecorder = interactionRecorder;
     }
 
     public ClubResponse createClub(User user, CreateClubRequest request) {
@@ -97,6 +101,7 @@ public class ClubService {
         membership.setStatus(MembershipStatus.PENDING);
 
         clubMembershipRepository.save(membership);
+        interactionRecorder.record(user.getUserId(), TargetType.CLUB, clubId, UserAction.JOIN);
 
         return convertToResponse(club);
     }
@@ -1,11 +1,15 @@
 package com.unisocial.services;
 
 import com.unisocial.dto.CommentResponse;
+import com.unisocial.events.PostEngagementEvent;
 import com.unisocial.models.Comment;
 import com.unisocial.models.Post;
+import com.unisocial.models.TargetType;
 import com.unisocial.models.User;
+import com.unisocial.models.UserAction;
 import com.unisocial.repositories.CommentRepository;
 import com.unisocial.repositories.PostRepository;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -18,10 +22,15 @@ public class CommentService {
 
     private final CommentRepository commentRepository;
     private final PostRepository postRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final InteractionRecorder interactionRecorder;
 
-    public CommentService(CommentRepository commentRepository, PostRepository postRepository) {
+    public CommentService(CommentRepository commentRepository, PostRepository postRepository,
+                          ApplicationEventPublisher eventPublisher, InteractionRecorder interactionRecorder) {
         this.commentRepository = commentRepository;
         this.postRepository = postRepository;
+        this.eventPublisher = eventPublisher;
+        this.interactionRecorder = interactionRecorder;
     }
 
     public CommentResponse addComment(User user, Long postId, String content, Long parentCommentId) {
@@ -40,6 +49,9 @@ public class CommentService {
         }
 
         Comment savedComment = commentRepository.save(comment);
+        postRepository.incrementCommentCount(postId, 1);
+        eventPublisher.publishEvent(new PostEngagementEvent(postId, 0, 1));
+        interactionRecorder.record(user.getUserId(), TargetType.POST, postId, UserAction.COMMENT);
         return convertToResponse(savedComment);
     }
 
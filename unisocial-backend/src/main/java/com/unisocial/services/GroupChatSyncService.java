@@ -0,0 +1,162 @@
+package com.unisocial.services;
+
+import com.unisocial.events.ClubMembershipChangedEvent;
+import com.unisocial.models.ChatRoom;
+import com.unisocial.models.ChatType;
+import com.unisocial.repositories.ChatParticipantRepository;
+import com.unisocial.repositories.ChatRoomRepository;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Keeps club group chat participants in line with approved club memberships.
+ *
+ * Single membership changes are applied right after they commit. Whole rooms
+ * (a newly created group chat, or the startup backfill of existing clubs) are
+ * synced in the background in chunks, each chunk one multi-row statement in
+ * its own short transaction.
+ */
+@Service
+public class GroupChatSyncService {
+
+    private final ChatRoomRepository chatRoomRepository;
+    private final ChatParticipantRepository chatParticipantRepository;
+    private final ChatMembershipCache chatMembershipCache;
+    private final TransactionTemplate transactionTemplate;
+
+    private final ExecutorService worker = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "group-chat-sync");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @Value("${chat.group-sync.chunk-size:500}")
+    private int chunkSize;
+
+    @Value("${chat.group-sync.backfill-on-startup:true}")
+    private boolean backfillOnStartup;
+
+    public GroupChatSyncService(ChatRoomRepository chatRoomRepository,
+                                ChatParticipantRepository chatParticipantRepository,
+                                ChatMembershipCache chatMembershipCache,
+                                TransactionTemplate transactionTemplate) {
+        this.chatRoomRepository = chatRoomRepository;
+        this.chatParticipantRepository = chatParticipantRepository;
+        this.chatMembershipCache = chatMembershipCache;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onMembershipChanged(ClubMembershipChangedEvent event) {
+        ChatRoom room = chatRoomRepository.findByTypeAndClub_ClubId(ChatType.GROUP, event.getClubId()).orElse(null);
+        if (room == null) {
+            return;
+        }
+        Long chatRoomId = room.getChatRoomId();
+        if (event.isApprovedMember()) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> chatParticipantRepository.insertParticipants(
+                        chatRoomId, List.of(event.getUserId()), Instant.now()));
+            } catch (DataIntegrityViolationException e) {
+                // A concurrent sync added the row first
+            }
+        } else {
+            transactionTemplate.executeWithoutResult(status ->
+                    chatParticipantRepository.deleteByChatRoomIdAndUserId(chatRoomId, event.getUserId()));
+            chatMembershipCache.invalidateRoom(chatRoomId);
+        }
+    }
+
+    /**
+     * Syncs a whole room in the background once the current transaction commits.
+     */
+    public void scheduleRoomSync(Long chatRoomId, Long clubId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    worker.execute(() -> syncRoom(chatRoomId, clubId));
+                }
+            });
+        } else {
+            worker.execute(() -> syncRoom(chatRoomId, clubId));
+        }
+    }
+
+    /**
+     * One-shot backfill: brings every existing club group room in line with its club.
+     * Idempotent, so running it on every startup only costs the diff queries.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfill() {
+        if (!backfillOnStartup) {
+            return;
+        }
+        for (Object[] row : chatRoomRepository.findGroupRoomClubs()) {
+            Long chatRoomId = (Long) row[0];
+            Long clubId = (Long) row[1];
+            worker.execute(() -> syncRoom(chatRoomId, clubId));
+        }
+    }
+
+    void syncRoom(Long chatRoomId, Long clubId) {
+        try {
+            PageRequest chunk = PageRequest.of(0, chunkSize);
+            long added = 0;
+            long removed = 0;
+
+            Long afterUserId = 0L;
+            while (true) {
+                List<Long> userIds = chatParticipantRepository.findMissingGroupParticipants(chatRoomId, clubId, afterUserId, chunk);
+                if (userIds.isEmpty()) {
+                    break;
+                }
+                Integer inserted = transactionTemplate.execute(status ->
+                        chatParticipantRepository.insertParticipants(chatRoomId, userIds, Instant.now()));
+                added += inserted != null ? inserted : 0;
+                afterUserId = userIds.get(userIds.size() - 1);
+            }
+
+            Long afterParticipantId = 0L;
+            while (true) {
+                List<Long> participantIds = chatParticipantRepository.findStaleGroupParticipants(chatRoomId, clubId, afterParticipantId, chunk);
+                if (participantIds.isEmpty()) {
+                    break;
+                }
+                Integer deleted = transactionTemplate.execute(status ->
+                        chatParticipantRepository.deleteAllByIds(participantIds));
+                removed += deleted != null ? deleted : 0;
+                afterParticipantId = participantIds.get(participantIds.size() - 1);
+            }
+
+            if (removed > 0) {
+                chatMembershipCache.invalidateRoom(chatRoomId);
+            }
+            if (added > 0 || removed > 0) {
+                System.out.println("Synced group chat " + chatRoomId + ": +" + added + " -" + removed + " participants");
+            }
+        } catch (RuntimeException e) {
+            // Retried by the next startup backfill
+            System.err.println("Failed to sync group chat " + chatRoomId + ": " + e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        worker.shutdownNow();
+    }
+}
@@ -0,0 +1,212 @@
+package com.unisocial.services;
+
+import com.unisocial.events.PostCreatedEvent;
+import com.unisocial.events.PostDeletedEvent;
+import com.unisocial.events.PostEngagementEvent;
+import com.unisocial.models.Post;
+import com.unisocial.repositories.PostRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+
+/**
+ * Bounded top-K of "hot" posts, kept up to date incrementally from post and
+ * engagement events.
+ *
+ * Engagement decays exponentially with a configurable half-life. Ordering posts
+ * by decayed engagement at any fixed time is the same as ordering them by
+ * ln(1 + engagement) + ln(2) * createdAt / halfLife, which does not depend on
+ * the current time. A post's score therefore only changes when it gains a like
+ * or comment, and no periodic re-scoring is needed.
+ *
+ * New posts, engagement and deletes made on other nodes arrive through
+ * ChatClusterBridge, so every node ranks the same posts.
+ */
+@Service
+public class HotFeedRanking {
+
+    private static final double LN2 = Math.log(2);
+    private static final long COMMENT_WEIGHT = 2;
+
+    private final PostRepository postRepository;
+    private final LikeCounterBuffer likeCounterBuffer;
+
+    private final Map<Long, Entry> entries = new HashMap<>();
+    private final TreeSet<Entry> ranking = new TreeSet<>(
+            Comparator.comparingDouble((Entry e) -> e.score).thenComparingLong(e -> e.postId).reversed());
+
+    @Value("${feed.hot.capacity:1000}")
+    private int capacity;
+
+    @Value("${feed.hot.half-life-hours:12}")
+    private double halfLifeHours;
+
+    @Value("${feed.hot.seed-days:7}")
+    private int seedDays;
+
+    public HotFeedRanking(PostRepository postRepository, LikeCounterBuffer likeCounterBuffer) {
+        this.postRepository = postRepository;
+        this.likeCounterBuffer = likeCounterBuffer;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void seed() {
+        Instant since = Instant.now().minus(Duration.ofDays(seedDays));
+        List<Post> recent = postRepository.findByCreatedAtAfterOrderByCreatedAtDesc(since, PageRequest.of(0, capacity * 5));
+        synchronized (this) {
+            for (Post post : recent) {
+                upsert(post.getPostId(), post.getCreatedAt(), post.getLikeCount(), post.getCommentCount());
+            }
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPostCreated(PostCreatedEvent event) {
+        synchronized (this) {
+            upsert(event.getPostId(), event.getCreatedAt(), 0, 0);
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onEngagement(PostEngagementEvent event) {
+        synchronized (this) {
+            Entry entry = entries.get(event.getPostId());
+            if (entry != null) {
+                upsert(entry.postId, entry.createdAt,
+                        entry.likes + event.getLikeDelta(), entry.comments + event.getCommentDelta());
+                return;
+            }
+        }
+        // Not tracked yet: load its current counts outside the lock and see if it now qualifies
+        List<Object[]> rows = postRepository.findCreatedAtAndCounts(event.getPostId());
+        if (rows.isEmpty()) {
+            return;
+        }
+        Object[] row = rows.get(0);
+        long likes = ((Number) row[1]).longValue() + likeCounterBuffer.pendingDelta(event.getPostId());
+        long comments = ((Number) row[2]).longValue();
+        synchronized (this) {
+            if (!entries.containsKey(event.getPostId())) {
+                upsert(event.getPostId(), (Instant) row[0], likes, comments);
+            }
+        }
+    }
+
+    /**
+     * Post ids of one hot page, best first. The cursor is the opaque position
+     * returned as nextCursor of the previous page.
+     */
+    public synchronized HotPage getPage(String before, int limit) {
+        NavigableSet<Entry> view = ranking;
+        if (before != null && !before.isEmpty()) {
+            view = ranking.tailSet(decodeCursor(before), false);
+        }
+        List<Long> postIds = new ArrayList<>(limit);
+        Entry last = null;
+        Iterator<Entry> it = view.iterator();
+        while (it.hasNext() && postIds.size() < limit) {
+            last = it.next();
+            postIds.add(last.postId);
+        }
+        String nextCursor = it.hasNext() && last != null ? encodeCursor(last) : null;
+        return new HotPage(postIds, nextCursor);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPostDeleted(PostDeletedEvent event) {
+        remove(event.getPostId());
+    }
+
+    public synchronized void remove(Long postId) {
+        Entry entry = entries.remove(postId);
+        if (entry != null) {
+            ranking.remove(entry);
+        }
+    }
+
+    // Caller holds the lock
+    private void upsert(Long postId, Instant createdAt, long likes, long comments) {
+        Entry previous = entries.remove(postId);
+        if (previous != null) {
+            ranking.remove(previous);
+        }
+        Entry entry = new Entry(postId, createdAt, Math.max(likes, 0), Math.max(comments, 0), score(createdAt, likes, comments));
+        if (ranking.size() >= capacity && previous == null) {
+            Entry weakest = ranking.last();
+            if (ranking.comparator().compare(entry, weakest) >= 0) {
+                return;
+            }
+            ranking.pollLast();
+            entries.remove(weakest.postId);
+        }
+        ranking.add(entry);
+        entries.put(postId, entry);
+    }
+
+    private double score(Instant createdAt, long likes, long comments) {
+        long engagement = Math.max(0, likes) + COMMENT_WEIGHT * Math.max(0, comments);
+        double halfLifeSeconds = halfLifeHours * 3600.0;
+        return Math.log1p(engagement) + LN2 * createdAt.getEpochSecond() / halfLifeSeconds;
+    }
+
+    private static String encodeCursor(Entry entry) {
+        String raw = Double.doubleToLongBits(entry.score) + "," + entry.postId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static Entry decodeCursor(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int comma = raw.indexOf(',');
+            double score = Double.longBitsToDouble(Long.parseLong(raw.substring(0, comma)));
+            return new Entry(Long.valueOf(raw.substring(comma + 1)), null, 0, 0, score);
+        } catch (RuntimeException e) {
+            throw new RuntimeException("Invalid cursor: " + cursor);
+        }
+    }
+
+    public static class HotPage {
+        private final List<Long> postIds;
+        private final String nextCursor;
+
+        HotPage(List<Long> postIds, String nextCursor) {
+            this.postIds = postIds;
+            this.nextCursor = nextCursor;
+        }
+
+        public List<Long> getPostIds() { return postIds; }
+        public String getNextCursor() { return nextCursor; }
+    }
+
+    private static class Entry {
+        private final long postId;
+        private final Instant createdAt;
+        private final long likes;
+        private final long comments;
+        private final double score;
+
+        Entry(long postId, Instant createdAt, long likes, long comments, double score) {
+            this.postId = postId;
+            this.createdAt = createdAt;
+            this.likes = likes;
+            this.comments = comments;
+            this.score = score;
+        }
+    }
+}
@@ -0,0 +1,227 @@
+package com.unisocial.services;
+
+import com.unisocial.models.TargetType;
+import com.unisocial.models.UserAction;
+import com.unisocial.models.UserInteraction;
+import com.unisocial.repositories.UserInteractionRepository;
+import com.unisocial.repositories.UserRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Fire-and-forget recording of user interactions for recommendations.
+ *
+ * Callers only offer to a bounded queue and never wait on the database; a
+ * single writer thread drains it and inserts each batch as one multi-row
+ * INSERT. When the queue is full the interaction is dropped and counted,
+ * since losing a few recommendation signals is better than slowing down
+ * the request that produced them. Interactions recorded inside a
+ * transaction are queued only once it commits.
+ */
+@Service
+public class InteractionRecorder {
+
+    private final UserInteractionRepository userInteractionRepository;
+    private final UserRepository userRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    private BlockingQueue<PendingInteraction> queue;
+    private Thread writer;
+    private volatile boolean running = true;
+
+    private final AtomicLong accepted = new AtomicLong();
+    private final AtomicLong shed = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+
+    @Value("${interactions.ingest.queue-capacity:50000}")
+    private int queueCapacity;
+
+    @Value("${interactions.ingest.max-batch-size:500}")
+    private int maxBatchSize;
+
+    // How long the writer keeps collecting after the first interaction of a batch
+    @Value("${interactions.ingest.linger-ms:200}")
+    private long lingerMs;
+
+    @Value("${interactions.ingest.shutdown-timeout-ms:5000}")
+    private long shutdownTimeoutMs;
+
+    public InteractionRecorder(UserInteractionRepository userInteractionRepository,
+                               UserRepository userRepository,
+                               TransactionTemplate transactionTemplate) {
+        this.userInteractionRepository = userInteractionRepository;
+        this.userRepository = userRepository;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    @PostConstruct
+    public void start() {
+        queue = new LinkedBlockingQueue<>(queueCapacity);
+        writer = new Thread(this::runWriter, "interaction-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Queues an interaction without blocking. Anonymous callers (null user) are ignored.
+     */
+    public void record(Long userId, TargetType targetType, Long targetId, UserAction action) {
+        if (userId == null || targetId == null) {
+            return;
+        }
+        PendingInteraction pending = new PendingInteraction(userId, targetType, targetId, action, Instant.now());
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    enqueue(pending);
+                }
+            });
+        } else {
+            enqueue(pending);
+        }
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new HashMap<>();
+        long batchCount = batches.get();
+        metrics.put("accepted", accepted.get());
+        metrics.put("shed", shed.get());
+        metrics.put("written", written.get());
+        metrics.put("failed", failed.get());
+        metrics.put("batches", batchCount);
+        metrics.put("averageBatchSize", batchCount == 0 ? 0.0 : (double) written.get() / batchCount);
+        metrics.put("queued", queue.size());
+        return metrics;
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        writer.join(shutdownTimeoutMs);
+        // Write whatever was accepted but not yet taken by the writer
+        List<PendingInteraction> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        for (int from = 0; from < remaining.size(); from += maxBatchSize) {
+            writeBatch(remaining.subList(from, Math.min(remaining.size(), from + maxBatchSize)));
+        }
+    }
+
+    private void enqueue(PendingInteraction pending) {
+        if (running && queue.offer(pending)) {
+            accepted.incrementAndGet();
+        } else {
+            shed.incrementAndGet();
+        }
+    }
+
+    private void runWriter() {
+        List<PendingInteraction> batch = new ArrayList<>(maxBatchSize);
+        while (running) {
+            try {
+                // Polling rather than take() lets shutdown stop the loop without interrupting a JDBC call
+                PendingInteraction first = queue.poll(500, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(lingerMs);
+                while (batch.size() < maxBatchSize && running) {
+                    queue.drainTo(batch, maxBatchSize - batch.size());
+                    long waitNanos = deadline - System.nanoTime();
+                    if (batch.size() >= maxBatchSize || waitNanos <= 0) {
+                        break;
+                    }
+                    PendingInteraction next = queue.poll(waitNanos, TimeUnit.NANOSECONDS);
+                    if (next != null) {
+                        batch.add(next);
+                    }
+                }
+            } catch (InterruptedException e) {
+                break;
+            } finally {
+                if (!batch.isEmpty()) {
+                    writeBatch(batch);
+                    batch.clear();
+                }
+            }
+        }
+    }
+
+    // One bad row (e.g. a user deleted while queued) fails the multi-row INSERT; isolate it
+    // so the rest of the batch is still written. Recommendation signals are not worth retrying.
+    private void writeBatch(List<PendingInteraction> batch) {
+        try {
+            insert(batch);
+        } catch (RuntimeException e) {
+            if (batch.size() == 1) {
+                failed.incrementAndGet();
+                System.err.println("Dropped a user interaction: " + e.getMessage());
+                return;
+            }
+            int dropped = 0;
+            for (PendingInteraction pending : batch) {
+                try {
+                    insert(List.of(pending));
+                } catch (RuntimeException single) {
+                    dropped++;
+                }
+            }
+            failed.addAndGet(dropped);
+            if (dropped > 0) {
+                System.err.println("Dropped " + dropped + " of " + batch.size() + " user interactions: " + e.getMessage());
+            }
+        }
+    }
+
+    private void insert(List<PendingInteraction> batch) {
+        transactionTemplate.executeWithoutResult(status -> {
+            List<UserInteraction> interactions = new ArrayList<>(batch.size());
+            for (PendingInteraction pending : batch) {
+                UserInteraction interaction = new UserInteraction();
+                interaction.setUser(userRepository.getReferenceById(pending.userId));
+                interaction.setTargetType(pending.targetType);
+                interaction.setTargetId(pending.targetId);
+                interaction.setAction(pending.action);
+                interaction.setCreatedAt(pending.createdAt);
+                interactions.add(interaction);
+            }
+            userInteractionRepository.insertAll(interactions);
+        });
+        batches.incrementAndGet();
+        written.addAndGet(batch.size());
+    }
+
+    private static class PendingInteraction {
+        private final Long userId;
+        private final TargetType targetType;
+        private final Long targetId;
+        private final UserAction action;
+        private final Instant createdAt;
+
+        PendingInteraction(Long userId, TargetType targetType, Long targetId, UserAction action, Instant createdAt) {
+            this.userId = userId;
+            this.targetType = targetType;
+            this.targetId = targetId;
+            this.action = action;
+            this.createdAt = createdAt;
+        }
+    }
+}
@@ -0,0 +1,259 @@
+package com.unisocial.services;
+
+import com.unisocial.repositories.LikeRepository;
+import com.unisocial.repositories.PostRepository;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Write-behind like counter. Likes on the same post only touch a striped LongAdder,
+ * so a viral post does not serialize every request on its posts row. Pending deltas
+ * are flushed to posts.like_count on a fixed delay, coalesced per post and applied
+ * in batched transactions.
+ *
+ * Deltas recorded inside a transaction are applied only once it commits, so a
+ * rolled-back like never reaches the counter. Adds, flush drains and idle eviction
+ * of a post's counter all run under its map bin lock, so an add can never land on
+ * a counter that has just been drained or evicted.
+ *
+ * The likes table stays the source of truth: deltas lost in a crash are recovered
+ * on startup by recounting posts liked within the recovery window. Lost unlikes
+ * leave no like row to find; the scheduled {@link PostCountReconciler} pass, which
+ * first runs shortly after startup, repairs those. Posts liked within the settle
+ * window are left alone by both, since another node may still hold their deltas.
+ */
+@Service
+public class LikeCounterBuffer {
+
+    private final PostRepository postRepository;
+    private final LikeRepository likeRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    private final ConcurrentHashMap<Long, Counter> counters = new ConcurrentHashMap<>();
+
+    private final AtomicLong lastFlushMillis = new AtomicLong(System.currentTimeMillis());
+    private final AtomicLong flushedDeltas = new AtomicLong();
+    private final AtomicLong flushFailures = new AtomicLong();
+
+    @Value("${likes.counter.flush-batch-size:200}")
+    private int batchSize;
+
+    @Value("${likes.counter.idle-eviction-ms:600000}")
+    private long idleEvictionMs;
+
+    @Value("${likes.counter.recovery-window-ms:300000}")
+    private long recoveryWindowMs;
+
+    @Value("${likes.counter.settle-ms:10000}")
+    private long settleMs;
+
+    public LikeCounterBuffer(PostRepository postRepository,
+                             LikeRepository likeRepository,
+                             TransactionTemplate transactionTemplate) {
+        this.postRepository = postRepository;
+        this.likeRepository = likeRepository;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    public void increment(Long postId) {
+        addAfterCommit(postId, 1);
+    }
+
+    public void decrement(Long postId) {
+        addAfterCommit(postId, -1);
+    }
+
+    /**
+     * Current like count: last known database value plus this node's unflushed delta.
+     */
+    public long currentCount(Long postId) {
+        Counter counter = counters.get(postId);
+        if (counter == null) {
+            Long stored = postRepository.findLikeCount(postId);
+            return stored != null ? stored : 0L;
+        }
+        counter.touch();
+        return counter.base.get() + counter.pending.sum();
+    }
+
+    /**
+     * Unflushed delta for a post; lets list builders correct row counts without a query.
+     */
+    public long pendingDelta(Long postId) {
+        Counter counter = counters.get(postId);
+        return counter != null ? counter.pending.sum() : 0L;
+    }
+
+    private void addAfterCommit(Long postId, long delta) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    add(postId, delta);
+                }
+            });
+        } else {
+            add(postId, delta);
+        }
+    }
+
+    private void add(Long postId, long delta) {
+        // Load outside compute so the map bin is not usually locked during a query
+        boolean tracked = counters.containsKey(postId);
+        Long stored = tracked ? null : postRepository.findLikeCount(postId);
+        counters.compute(postId, (id, counter) -> {
+            if (counter == null) {
+                // Evicted since the check; rare enough to load under the bin lock
+                Long base = tracked ? postRepository.findLikeCount(id) : stored;
+                counter = new Counter(base != null ? base : 0L);
+            }
+            counter.add(delta);
+            counter.touch();
+            return counter;
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${likes.counter.flush-interval-ms:1000}")
+    public void flush() {
+        List<Long> batchIds = new ArrayList<>();
+        List<Long> batchDeltas = new ArrayList<>();
+        long now = System.currentTimeMillis();
+
+        for (Long postId : counters.keySet()) {
+            long[] drained = new long[1];
+            counters.computeIfPresent(postId, (id, counter) -> {
+                // No add can run on this counter while its bin is locked, so the reset loses nothing
+                drained[0] = counter.pending.sumThenReset();
+                if (drained[0] != 0) {
+                    // Keep readers roughly right while the delta is in flight
+                    counter.base.addAndGet(drained[0]);
+                    return counter;
+                }
+                return now - counter.lastTouched > idleEvictionMs ? null : counter;
+            });
+            if (drained[0] != 0) {
+                batchIds.add(postId);
+                batchDeltas.add(drained[0]);
+                if (batchIds.size() >= batchSize) {
+                    flushBatch(batchIds, batchDeltas);
+                    batchIds = new ArrayList<>();
+                    batchDeltas = new ArrayList<>();
+                }
+            }
+        }
+        if (!batchIds.isEmpty()) {
+            flushBatch(batchIds, batchDeltas);
+        }
+        lastFlushMillis.set(System.currentTimeMillis());
+    }
+
+    private void flushBatch(List<Long> postIds, List<Long> deltas) {
+        try {
+            List<Object[]> fresh = transactionTemplate.execute(status -> {
+                for (int i = 0; i < postIds.size(); i++) {
+                    postRepository.incrementLikeCount(postIds.get(i), deltas.get(i));
+                }
+                return postRepository.findLikeCounts(postIds);
+            });
+            // Re-base on the stored value so flushes from other nodes become visible
+            if (fresh != null) {
+                for (Object[] row : fresh) {
+                    Counter counter = counters.get(((Number) row[0]).longValue());
+                    if (counter != null) {
+                        counter.base.set(((Number) row[1]).longValue());
+                    }
+                }
+            }
+            for (Long delta : deltas) {
+                flushedDeltas.addAndGet(Math.abs(delta));
+            }
+        } catch (RuntimeException e) {
+            // Put the deltas back so the next flush retries them
+            flushFailures.incrementAndGet();
+            for (int i = 0; i < postIds.size(); i++) {
+                long delta = deltas.get(i);
+                counters.compute(postIds.get(i), (id, counter) -> {
+                    Counter restored = counter != null ? counter : new Counter(delta);
+                    restored.base.addAndGet(-delta);
+                    restored.pending.add(delta);
+                    return restored;
+                });
+            }
+            System.err.println("Like counter flush failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Re-applies deltas that may have been lost if the previous process died before flushing.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void recoverRecentDeltas() {
+        Instant now = Instant.now();
+        List<Long> postIds = new ArrayList<>(likeRepository.findPostIdsLikedSince(now.minus(Duration.ofMillis(recoveryWindowMs))));
+        postIds.removeAll(likeRepository.findPostIdsLikedSince(now.minus(Duration.ofMillis(settleMs))));
+        for (int from = 0; from < postIds.size(); from += batchSize) {
+            List<Long> chunk = postIds.subList(from, Math.min(from + batchSize, postIds.size()));
+            transactionTemplate.executeWithoutResult(status -> postRepository.recomputeCounts(chunk));
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+
+    public Map<String, Object> getMetrics() {
+        long pendingPosts = 0;
+        long pendingDelta = 0;
+        for (Counter counter : counters.values()) {
+            long delta = counter.pending.sum();
+            if (delta != 0) {
+                pendingPosts++;
+                pendingDelta += Math.abs(delta);
+            }
+        }
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("trackedPosts", counters.size());
+        metrics.put("pendingPosts", pendingPosts);
+        metrics.put("pendingDelta", pendingDelta);
+        metrics.put("flushLagMs", System.currentTimeMillis() - lastFlushMillis.get());
+        metrics.put("flushedDeltas", flushedDeltas.get());
+        metrics.put("flushFailures", flushFailures.get());
+        return metrics;
+    }
+
+    private static class Counter {
+        private final AtomicLong base;
+        private final LongAdder pending = new LongAdder();
+        private volatile long lastTouched = System.currentTimeMillis();
+
+        Counter(long base) {
+            this.base = new AtomicLong(base);
+        }
+
+        void add(long delta) {
+            pending.add(delta);
+        }
+
+        void touch() {
+            lastTouched = System.currentTimeMillis();
+        }
+    }
+}
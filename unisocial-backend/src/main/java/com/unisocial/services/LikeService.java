@@ -1,11 +1,13 @@
 package com.unisocial.services;
 
 import com.unisocial.dto.LikeResponse;
-import com.unisocial.models.Like;
-import com.unisocial.models.Post;
+import com.unisocial.events.PostEngagementEvent;
+import com.unisocial.models.TargetType;
+import com.unisocial.models.UserAction;
 import com.unisocial.repositories.LikeRepository;
 import com.unisocial.repositories.PostRepository;
-import com.unisocial.repositories.UserRepository;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -15,47 +17,61 @@ public class LikeService {
 
     private final LikeRepository likeRepository;
     private final PostRepository postRepository;
-    private final UserRepository userRepository;
+    private final LikeCounterBuffer likeCounterBuffer;
+    private final ApplicationEventPublisher eventPublisher;
+    private final InteractionRecorder interactionRecorder;
 
-    public LikeService(LikeRepository likeRepository, PostRepository postRepository, UserRepository userRepository) {
+    public LikeService(LikeRepository likeRepository, PostRepository postRepository, LikeCounterBuffer likeCounterBuffer,
+                       ApplicationEventPublisher eventPublisher, InteractionRecorder interactionRecorder) {
         this.likeRepository = likeRepository;
         this.postRepository = postRepository;
-        this.userRepository = userRepository;
+        this.likeCounterBuffer = likeCounterBuffer;
+        this.eventPublisher = eventPublisher;
+        this.interactionRecorder = interactionRecorder;
     }
 
+    /**
+     * Idempotent: liking an already liked post is a no-op that still reports liked = true.
+     */
     public LikeResponse likePost(Long userId, Long postId) {
-        Post post = postRepository.findById(postId)
-                .orElseThrow(() -> new RuntimeException("Post not found with id: " + postId));
-
-        // Check if user already liked this post
-        if (likeRepository.existsByPostPostIdAndUserUserId(postId, userId)) {
-            throw new RuntimeException("User has already liked this post");
+        boolean inserted;
+        try {
+            inserted = likeRepository.insertIfAbsent(postId, userId);
+        } catch (DataIntegrityViolationException e) {
+            // The post was purged between the insert's check and its foreign key check
+            throw new RuntimeException("Post not found with id: " + postId);
         }
-
-        Like like = new Like();
-        like.setPost(post);
-        // Use a reference to avoid loading full entity and detached issues
-        like.setUser(userRepository.getReferenceById(userId));
-
-        likeRepository.save(like);
-
-        long totalLikes = likeRepository.countByPostPostId(postId);
-        return new LikeResponse(postId, totalLikes, true);
+        // Nothing inserted: either already liked, or the post is gone or hidden for purging
+        if (!inserted && !postRepository.existsById(postId)) {
+            throw new RuntimeException("Post not found with id: " + postId);
+        }
+        // The buffered count only changes once this transaction commits
+        long count = likeCounterBuffer.currentCount(postId);
+        if (inserted) {
+            likeCounterBuffer.increment(postId);
+            eventPublisher.publishEvent(new PostEngagementEvent(postId, 1, 0));
+            interactionRecorder.record(userId, TargetType.POST, postId, UserAction.LIKE);
+            count++;
+        }
+        return new LikeResponse(postId, count, true);
     }
 
+    /**
+     * Idempotent: unliking a post that is not liked is a no-op that reports liked = false.
+     */
     public LikeResponse unlikePost(Long userId, Long postId) {
-        Like like = likeRepository.findByPostPostIdAndUserUserId(postId, userId)
-                .orElseThrow(() -> new RuntimeException("Like not found"));
-
-        likeRepository.delete(like);
-
-        long totalLikes = likeRepository.countByPostPostId(postId);
-        return new LikeResponse(postId, totalLikes, false);
+        long count = likeCounterBuffer.currentCount(postId);
+        if (likeRepository.deleteByPostIdAndUserId(postId, userId) > 0) {
+            likeCounterBuffer.decrement(postId);
+            eventPublisher.publishEvent(new PostEngagementEvent(postId, -1, 0));
+            count--;
+        }
+        return new LikeResponse(postId, Math.max(0, count), false);
     }
 
     @Transactional(readOnly = true)
     public LikeResponse countLikes(Long postId, Long currentUserId) {
-        long totalLikes = likeRepository.countByPostPostId(postId);
+        long totalLikes = likeCounterBuffer.currentCount(postId);
         boolean likedByCurrentUser = false;
 
         if (currentUserId != null) {
@@ -65,4 +81,3 @@ public class LikeService {
         return new LikeResponse(postId, totalLikes, likedByCurrentUser);
     }
 }
-
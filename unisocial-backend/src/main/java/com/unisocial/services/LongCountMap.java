@@ -0,0 +1,91 @@
+package com.unisocial.services;
+
+import java.util.List;
+
+/**
+ * Minimal open-addressing map from a long id to a long count. Used to merge
+ * grouped COUNT(*) rows into post lists without boxing every key and value.
+ */
+final class LongCountMap {
+
+    private static final long EMPTY = 0L;
+
+    private long[] keys;
+    private long[] values;
+    private int size;
+    // Key 0 cannot live in the table since it marks empty slots
+    private boolean hasZeroKey;
+    private long zeroValue;
+
+    LongCountMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(4, expectedSize * 2 - 1)) << 1;
+        keys = new long[capacity];
+        values = new long[capacity];
+    }
+
+    /**
+     * Builds a map from query rows shaped as (Long id, Long count).
+     */
+    static LongCountMap fromRows(List<Object[]> rows) {
+        LongCountMap map = new LongCountMap(rows.size());
+        for (Object[] row : rows) {
+            map.add(((Number) row[0]).longValue(), ((Number) row[1]).longValue());
+        }
+        return map;
+    }
+
+    long get(long key) {
+        if (key == EMPTY) {
+            return hasZeroKey ? zeroValue : 0L;
+        }
+        int mask = keys.length - 1;
+        int slot = mix(key) & mask;
+        while (keys[slot] != EMPTY) {
+            if (keys[slot] == key) {
+                return values[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return 0L;
+    }
+
+    void add(long key, long delta) {
+        if (key == EMPTY) {
+            hasZeroKey = true;
+            zeroValue += delta;
+            return;
+        }
+        int mask = keys.length - 1;
+        int slot = mix(key) & mask;
+        while (keys[slot] != EMPTY) {
+            if (keys[slot] == key) {
+                values[slot] += delta;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = delta;
+        if (++size * 2 > keys.length) {
+            grow();
+        }
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        long[] oldValues = values;
+        keys = new long[oldKeys.length * 2];
+        values = new long[oldValues.length * 2];
+        size = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                add(oldKeys[i], oldValues[i]);
+            }
+        }
+    }
+
+    private static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
@@ -0,0 +1,318 @@
+package com.unisocial.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.unisocial.dto.MessageResponse;
+import com.unisocial.models.User;
+import com.unisocial.repositories.UserRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Cold storage for chat messages moved out of the database by MessageArchiver.
+ *
+ * One gzip-compressed segment per room and month, at {dir}/{yyyy-MM}/room-{id}.jsonl.gz,
+ * holding one JSON message per line, newest first, so a history page reads only
+ * the head of a segment and stops. Which rooms have segments in which months is
+ * kept in memory and re-listed after a local write or delete, or once it is
+ * older than chat.archive.index-ttl-ms (for other nodes sharing the volume).
+ * Segments are written once through a temp file and an atomic rename and never
+ * modified afterwards; retention only deletes whole segments. Segments are the
+ * only copy once a partition is dropped, so MessageArchiver refuses to archive
+ * unless chat.archive.dir is explicitly set to an absolute path, which must be a
+ * persistent volume shared by every node.
+ */
+@Service
+public class MessageArchive {
+
+    private static final String SEGMENT_PREFIX = "room-";
+    private static final String SEGMENT_SUFFIX = ".jsonl.gz";
+
+    private final ObjectMapper objectMapper;
+    private final UserRepository userRepository;
+
+    private final AtomicLong segmentsWritten = new AtomicLong();
+    private final AtomicLong messagesWritten = new AtomicLong();
+    private final AtomicLong segmentsRead = new AtomicLong();
+    private final AtomicLong segmentsDeleted = new AtomicLong();
+
+    // Unset means a relative fallback directory, fine for reading but not for archiving into
+    @Value("${chat.archive.dir:}")
+    private String archiveDir;
+
+    @Value("${chat.archive.index-ttl-ms:60000}")
+    private long indexTtlMs;
+
+    private volatile SegmentIndex index;
+
+    public MessageArchive(ObjectMapper objectMapper, UserRepository userRepository) {
+        this.objectMapper = objectMapper;
+        this.userRepository = userRepository;
+    }
+
+    /**
+     * Writes (or rewrites, after an interrupted archive run) one room's messages of a
+     * month, given newest first.
+     */
+    public void writeSegment(YearMonth month, Long chatRoomId, List<ArchivedMessage> messages) throws IOException {
+        Path monthDir = root().resolve(month.toString());
+        Files.createDirectories(monthDir);
+        Path target = monthDir.resolve(SEGMENT_PREFIX + chatRoomId + SEGMENT_SUFFIX);
+        Path temp = monthDir.resolve(SEGMENT_PREFIX + chatRoomId + SEGMENT_SUFFIX + ".tmp");
+        try (BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(
+                new GZIPOutputStream(Files.newOutputStream(temp)), StandardCharsets.UTF_8))) {
+            for (ArchivedMessage message : messages) {
+                writer.write(objectMapper.writeValueAsString(message));
+                writer.newLine();
+            }
+        }
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        index = null;
+        segmentsWritten.incrementAndGet();
+        messagesWritten.addAndGet(messages.size());
+    }
+
+    /**
+     * Up to {@code limit} archived messages of a room older than {@code beforeId},
+     * newest first. Segments are read newest month first and decompressed only as
+     * far as needed to fill the page.
+     */
+    public List<MessageResponse> readBefore(Long chatRoomId, long beforeId, int limit) {
+        List<ArchivedMessage> found = new ArrayList<>();
+        for (YearMonth month : index().monthsWithRoomNewestFirst(chatRoomId)) {
+            readSegment(segmentPath(month, chatRoomId), beforeId, limit, found);
+            if (found.size() >= limit) {
+                break;
+            }
+        }
+        return toResponses(chatRoomId, found);
+    }
+
+    /**
+     * Archived months in ascending order.
+     */
+    public List<YearMonth> listMonths() {
+        List<YearMonth> months = new ArrayList<>();
+        Path root = root();
+        if (!Files.isDirectory(root)) {
+            return months;
+        }
+        try (DirectoryStream<Path> dirs = Files.newDirectoryStream(root, Files::isDirectory)) {
+            for (Path dir : dirs) {
+                try {
+                    months.add(YearMonth.parse(dir.getFileName().toString()));
+                } catch (DateTimeParseException e) {
+                    // Not a month directory
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        Collections.sort(months);
+        return months;
+    }
+
+    public Set<Long> listRooms(YearMonth month) {
+        Set<Long> chatRoomIds = new HashSet<>();
+        Path monthDir = root().resolve(month.toString());
+        if (!Files.isDirectory(monthDir)) {
+            return chatRoomIds;
+        }
+        try (DirectoryStream<Path> segments = Files.newDirectoryStream(monthDir, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path segment : segments) {
+                String name = segment.getFileName().toString();
+                try {
+                    chatRoomIds.add(Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())));
+                } catch (NumberFormatException e) {
+                    // Not a segment
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return chatRoomIds;
+    }
+
+    /**
+     * Deletes one segment, and its month directory once that is empty.
+     */
+    public void deleteSegment(YearMonth month, Long chatRoomId) throws IOException {
+        if (Files.deleteIfExists(segmentPath(month, chatRoomId))) {
+            segmentsDeleted.incrementAndGet();
+        }
+        index = null;
+        Path monthDir = root().resolve(month.toString());
+        try (DirectoryStream<Path> remaining = Files.newDirectoryStream(monthDir)) {
+            if (!remaining.iterator().hasNext()) {
+                Files.deleteIfExists(monthDir);
+            }
+        }
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new HashMap<>();
+        metrics.put("segmentsWritten", segmentsWritten.get());
+        metrics.put("messagesWritten", messagesWritten.get());
+        metrics.put("segmentsRead", segmentsRead.get());
+        metrics.put("segmentsDeleted", segmentsDeleted.get());
+        return metrics;
+    }
+
+    // Appends messages older than beforeId until the page is full; a segment removed meanwhile is skipped
+    private void readSegment(Path segment, long beforeId, int limit, List<ArchivedMessage> found) {
+        if (!Files.exists(segment)) {
+            index = null;
+            return;
+        }
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(Files.newInputStream(segment)), StandardCharsets.UTF_8))) {
+            String line;
+            while (found.size() < limit && (line = reader.readLine()) != null) {
+                if (line.isEmpty()) {
+                    continue;
+                }
+                ArchivedMessage message = objectMapper.readValue(line, ArchivedMessage.class);
+                if (message.getMessageId() < beforeId) {
+                    found.add(message);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read chat archive segment " + segment, e);
+        }
+        segmentsRead.incrementAndGet();
+    }
+
+    private SegmentIndex index() {
+        SegmentIndex current = index;
+        if (current == null || System.currentTimeMillis() - current.loadedAt > indexTtlMs) {
+            TreeMap<YearMonth, Set<Long>> roomsByMonth = new TreeMap<>();
+            for (YearMonth month : listMonths()) {
+                roomsByMonth.put(month, listRooms(month));
+            }
+            current = new SegmentIndex(roomsByMonth);
+            index = current;
+        }
+        return current;
+    }
+
+    // Sender names are resolved at read time, as for messages still in the database
+    private List<MessageResponse> toResponses(Long chatRoomId, List<ArchivedMessage> messages) {
+        Set<Long> senderIds = new HashSet<>();
+        for (ArchivedMessage message : messages) {
+            senderIds.add(message.getSenderId());
+        }
+        Map<Long, String> names = new HashMap<>();
+        if (!senderIds.isEmpty()) {
+            for (User user : userRepository.findAllById(senderIds)) {
+                names.put(user.getUserId(), user.getName());
+            }
+        }
+        List<MessageResponse> responses = new ArrayList<>(messages.size());
+        for (ArchivedMessage message : messages) {
+            responses.add(new MessageResponse(message.getMessageId(), chatRoomId, message.getSenderId(),
+                    names.get(message.getSenderId()), message.getContent(), message.getTimestamp(), message.getRead()));
+        }
+        return responses;
+    }
+
+    private Path segmentPath(YearMonth month, Long chatRoomId) {
+        return root().resolve(month.toString()).resolve(SEGMENT_PREFIX + chatRoomId + SEGMENT_SUFFIX);
+    }
+
+    /**
+     * Whether chat.archive.dir was explicitly set to an absolute path, i.e. deliberately
+     * pointed at a persistent (and, with several nodes, shared) volume.
+     */
+    public boolean isExplicitLocation() {
+        return archiveDir != null && !archiveDir.isBlank() && Paths.get(archiveDir).isAbsolute();
+    }
+
+    private Path root() {
+        String dir = archiveDir == null || archiveDir.isBlank() ? "chat-archive" : archiveDir;
+        return Paths.get(dir).toAbsolutePath().normalize();
+    }
+
+    /**
+     * Snapshot of which rooms have a segment in which month.
+     */
+    private static class SegmentIndex {
+        private final TreeMap<YearMonth, Set<Long>> roomsByMonth;
+        private final long loadedAt = System.currentTimeMillis();
+
+        SegmentIndex(TreeMap<YearMonth, Set<Long>> roomsByMonth) {
+            this.roomsByMonth = roomsByMonth;
+        }
+
+        List<YearMonth> monthsWithRoomNewestFirst(Long chatRoomId) {
+            List<YearMonth> months = new ArrayList<>();
+            for (Map.Entry<YearMonth, Set<Long>> entry : roomsByMonth.descendingMap().entrySet()) {
+                if (entry.getValue().contains(chatRoomId)) {
+                    months.add(entry.getKey());
+                }
+            }
+            return months;
+        }
+    }
+
+    /**
+     * One line of a segment. The room id is implied by the segment.
+     */
+    public static class ArchivedMessage {
+        private Long messageId;
+        private Long senderId;
+        private String content;
+        private Instant timestamp;
+        private Boolean read;
+
+        public ArchivedMessage() {}
+
+        public ArchivedMessage(Long messageId, Long senderId, String content, Instant timestamp, Boolean read) {
+            this.messageId = messageId;
+            this.senderId = senderId;
+            this.content = content;
+            this.timestamp = timestamp;
+            this.read = read;
+        }
+
+        public Long getMessageId() { return messageId; }
+        public void setMessageId(Long messageId) { this.messageId = messageId; }
+
+        public Long getSenderId() { return senderId; }
+        public void setSenderId(Long senderId) { this.senderId = senderId; }
+
+        public String getContent() { return content; }
+        public void setContent(String content) { this.content = content; }
+
+        public Instant getTimestamp() { return timestamp; }
+        public void setTimestamp(Instant timestamp) { this.timestamp = timestamp; }
+
+        public Boolean getRead() { return read; }
+        public void setRead(Boolean read) { this.read = read; }
+    }
+}
@@ -0,0 +1,416 @@
+package com.unisocial.services;
+
+import com.unisocial.models.ChatRoom;
+import com.unisocial.models.ChatType;
+import com.unisocial.repositories.ChatRoomRepository;
+import com.unisocial.repositories.MessageRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps the messages table small: monthly partitions on Postgres, whole old
+ * partitions moved into MessageArchive segments, and a retention period per
+ * ChatType after which messages are deleted from both places.
+ *
+ * Converting an existing plain messages table is a maintenance-window step. It
+ * holds an ACCESS EXCLUSIVE lock on messages while the whole table is copied,
+ * which blocks chat sends and reads on every node. So it only runs when
+ * chat.partitioning.convert-on-startup is set. Start one node with the flag while
+ * chat traffic is drained, then remove it. The table is rebuilt as one
+ * partitioned by month on its timestamp, in one transaction. The primary key
+ * becomes (message_id, timestamp) because Postgres requires the partition key in
+ * it; ids keep coming from one sequence. Once the table is partitioned, every
+ * node detects that at startup and keeps partitions created a few months ahead, and a partition older than the archive age is
+ * streamed out room by room and then dropped, which frees its rows and index
+ * entries at once instead of deleting them row by row.
+ *
+ * MySQL, used for development, keeps the plain table; only the retention
+ * deletes run there.
+ */
+@Service
+public class MessageArchiver {
+
+    private static final String PARTITION_PREFIX = "messages_";
+    private static final DateTimeFormatter PARTITION_SUFFIX = DateTimeFormatter.ofPattern("yyyy_MM");
+    // Advisory lock key serializing the table conversion and archive runs across nodes
+    private static final long LOCK_KEY = 7_261_023L;
+
+    private final DataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final MessageRepository messageRepository;
+    private final ChatRoomRepository chatRoomRepository;
+    private final MessageArchive messageArchive;
+    private final RecentMessageCache recentMessageCache;
+
+    private volatile boolean partitioned;
+    private final AtomicLong partitionsArchived = new AtomicLong();
+    private final AtomicLong messagesArchived = new AtomicLong();
+    private final AtomicLong messagesExpired = new AtomicLong();
+
+    // Maintenance-window only, see the class comment
+    @Value("${chat.partitioning.convert-on-startup:false}")
+    private boolean convertOnStartup;
+
+    @Value("${chat.partitioning.months-ahead:3}")
+    private int monthsAhead;
+
+    // Partitions entirely older than this many months go to the archive; 0 keeps everything hot
+    @Value("${chat.archive.after-months:6}")
+    private int archiveAfterMonths;
+
+    @Value("${chat.archive.fetch-size:1000}")
+    private int fetchSize;
+
+    // 0 keeps messages of that chat type forever
+    @Value("${chat.retention.private-months:0}")
+    private int privateRetentionMonths;
+
+    @Value("${chat.retention.group-months:0}")
+    private int groupRetentionMonths;
+
+    @Value("${chat.retention.chunk-size:1000}")
+    private int chunkSize;
+
+    public MessageArchiver(DataSource dataSource, JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+                           MessageRepository messageRepository, ChatRoomRepository chatRoomRepository,
+                           MessageArchive messageArchive, RecentMessageCache recentMessageCache) {
+        this.dataSource = dataSource;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.messageRepository = messageRepository;
+        this.chatRoomRepository = chatRoomRepository;
+        this.messageArchive = messageArchive;
+        this.recentMessageCache = recentMessageCache;
+    }
+
+    // Before other startup work on the messages table, such as the search index
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void start() {
+        if (!isPostgres()) {
+            return;
+        }
+        try {
+            if (convertOnStartup) {
+                transactionTemplate.executeWithoutResult(status -> partitionMessagesTable());
+            }
+            if ("p".equals(messagesTableKind())) {
+                ensurePartitions();
+                partitioned = true;
+            }
+        } catch (RuntimeException e) {
+            System.err.println("Could not partition the messages table: " + e.getMessage());
+        }
+    }
+
+    @Scheduled(initialDelayString = "${chat.archive.initial-delay-ms:300000}",
+               fixedDelayString = "${chat.archive.interval-ms:86400000}")
+    public void runMaintenance() {
+        try {
+            if (partitioned) {
+                ensurePartitions();
+                archiveOldPartitions();
+            }
+            purgeExpiredMessages();
+            purgeExpiredSegments();
+        } catch (RuntimeException e) {
+            // Everything here is safe to repeat; the next run picks up where this one failed
+            System.err.println("Chat message maintenance failed: " + e.getMessage());
+        }
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new HashMap<>();
+        metrics.put("partitioned", partitioned);
+        metrics.put("partitionsArchived", partitionsArchived.get());
+        metrics.put("messagesArchived", messagesArchived.get());
+        metrics.put("messagesExpired", messagesExpired.get());
+        metrics.put("archive", messageArchive.getMetrics());
+        return metrics;
+    }
+
+    // Runs in one transaction, so a failed conversion leaves the original table untouched
+    private void partitionMessagesTable() {
+        jdbcTemplate.queryForList("SELECT pg_advisory_xact_lock(?)", LOCK_KEY);
+        String kind = messagesTableKind();
+        if (kind == null || "p".equals(kind)) {
+            return;
+        }
+        System.out.println("Converting messages to a monthly partitioned table");
+        jdbcTemplate.execute("LOCK TABLE messages IN ACCESS EXCLUSIVE MODE");
+        jdbcTemplate.execute("ALTER TABLE messages RENAME TO messages_unpartitioned");
+        jdbcTemplate.execute("ALTER INDEX IF EXISTS messages_pkey RENAME TO messages_unpartitioned_pkey");
+        jdbcTemplate.execute("ALTER INDEX IF EXISTS idx_messages_room_message RENAME TO idx_messages_unpartitioned_room_message");
+
+        jdbcTemplate.execute("CREATE TABLE messages (LIKE messages_unpartitioned INCLUDING DEFAULTS INCLUDING GENERATED) " +
+                "PARTITION BY RANGE (\"timestamp\")");
+        jdbcTemplate.execute("CREATE SEQUENCE IF NOT EXISTS messages_id_seq OWNED BY messages.message_id");
+        jdbcTemplate.execute("ALTER TABLE messages ALTER COLUMN message_id SET DEFAULT nextval('messages_id_seq')");
+        jdbcTemplate.execute("ALTER TABLE messages ADD CONSTRAINT messages_pkey PRIMARY KEY (message_id, \"timestamp\")");
+        jdbcTemplate.execute("ALTER TABLE messages ADD CONSTRAINT fk_messages_chat_room " +
+                "FOREIGN KEY (chat_room_id) REFERENCES chat_rooms (chat_room_id)");
+        jdbcTemplate.execute("ALTER TABLE messages ADD CONSTRAINT fk_messages_sender " +
+                "FOREIGN KEY (sender_id) REFERENCES users (user_id)");
+        jdbcTemplate.execute("CREATE INDEX idx_messages_room_message ON messages (chat_room_id, message_id)");
+
+        Timestamp oldest = jdbcTemplate.queryForObject(
+                "SELECT MIN(\"timestamp\") FROM messages_unpartitioned", Timestamp.class);
+        YearMonth current = YearMonth.now(ZoneOffset.UTC);
+        YearMonth month = oldest != null ? YearMonth.from(oldest.toInstant().atZone(ZoneOffset.UTC)) : current;
+        for (; !month.isAfter(current.plusMonths(monthsAhead)); month = month.plusMonths(1)) {
+            createPartition(month);
+        }
+        // Generated columns such as the search vector are recomputed, not copied
+        String columns = String.join(", ", jdbcTemplate.queryForList(
+                "SELECT quote_ident(column_name) FROM information_schema.columns WHERE table_schema = current_schema() " +
+                "AND table_name = 'messages_unpartitioned' AND is_generated = 'NEVER' ORDER BY ordinal_position", String.class));
+        jdbcTemplate.execute("INSERT INTO messages (" + columns + ") SELECT " + columns + " FROM messages_unpartitioned");
+        jdbcTemplate.queryForList("SELECT setval('messages_id_seq', " +
+                "(SELECT COALESCE(MAX(message_id), 0) + 1 FROM messages), false)");
+        jdbcTemplate.execute("DROP TABLE messages_unpartitioned");
+    }
+
+    // 'p' for a partitioned table, 'r' for a plain one
+    private String messagesTableKind() {
+        List<String> kind = jdbcTemplate.queryForList(
+                "SELECT relkind::text FROM pg_class WHERE oid = to_regclass('messages')", String.class);
+        return kind.isEmpty() ? null : kind.get(0);
+    }
+
+    private void ensurePartitions() {
+        YearMonth current = YearMonth.now(ZoneOffset.UTC);
+        for (int i = 0; i <= monthsAhead; i++) {
+            createPartition(current.plusMonths(i));
+        }
+    }
+
+    private void createPartition(YearMonth month) {
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + partitionName(month) + " PARTITION OF messages " +
+                "FOR VALUES FROM ('" + month.atDay(1) + " 00:00:00+00') TO ('" + month.plusMonths(1).atDay(1) + " 00:00:00+00')");
+    }
+
+    private void archiveOldPartitions() {
+        if (archiveAfterMonths <= 0) {
+            return;
+        }
+        // Dropping a partition is irreversible; a relative or default directory may sit on an
+        // ephemeral container disk or on one node only, so the history would silently be lost
+        if (!messageArchive.isExplicitLocation()) {
+            System.err.println("Skipping chat partition archiving: chat.archive.dir must be set to an absolute " +
+                    "path on a persistent volume shared by all nodes");
+            return;
+        }
+        YearMonth cutoff = YearMonth.now(ZoneOffset.UTC).minusMonths(archiveAfterMonths);
+        for (YearMonth month : listPartitions()) {
+            if (month.isBefore(cutoff)) {
+                archivePartition(month);
+            }
+        }
+    }
+
+    /**
+     * Streams one partition into segments ordered by room and id, then drops it. The
+     * segments are written before the DROP commits, so a failure in between only
+     * means the next run writes the same segments again.
+     */
+    private void archivePartition(YearMonth month) {
+        String partition = partitionName(month);
+        Map<ChatType, Instant> retentionCutoffs = retentionCutoffs();
+        Long archived = transactionTemplate.execute(status -> {
+            Boolean locked = jdbcTemplate.queryForObject("SELECT pg_try_advisory_xact_lock(?)", Boolean.class, LOCK_KEY);
+            if (!Boolean.TRUE.equals(locked) || jdbcTemplate.queryForObject(
+                    "SELECT to_regclass(?) IS NOT NULL", Boolean.class, partition) != Boolean.TRUE) {
+                return null;
+            }
+            SegmentCollector collector = new SegmentCollector(month, retentionCutoffs);
+            jdbcTemplate.query(connection -> {
+                PreparedStatement statement = connection.prepareStatement(
+                        "SELECT m.message_id, m.chat_room_id, m.sender_id, m.content, m.\"timestamp\", m.is_read, r.type " +
+                        "FROM " + partition + " m JOIN chat_rooms r ON r.chat_room_id = m.chat_room_id " +
+                        "ORDER BY m.chat_room_id, m.message_id DESC");
+                statement.setFetchSize(fetchSize);
+                return statement;
+            }, collector);
+            collector.flush();
+            jdbcTemplate.execute("DROP TABLE " + partition);
+            return collector.archived;
+        });
+        if (archived != null) {
+            partitionsArchived.incrementAndGet();
+            messagesArchived.addAndGet(archived);
+            System.out.println("Archived " + archived + " chat messages from " + partition);
+        }
+    }
+
+    private List<YearMonth> listPartitions() {
+        List<YearMonth> months = new ArrayList<>();
+        for (String name : jdbcTemplate.queryForList("SELECT c.relname::text FROM pg_inherits i " +
+                "JOIN pg_class c ON c.oid = i.inhrelid WHERE i.inhparent = to_regclass('messages')", String.class)) {
+            if (!name.startsWith(PARTITION_PREFIX)) {
+                continue;
+            }
+            try {
+                months.add(YearMonth.parse(name.substring(PARTITION_PREFIX.length()), PARTITION_SUFFIX));
+            } catch (DateTimeParseException e) {
+                // Not one of ours
+            }
+        }
+        Collections.sort(months);
+        return months;
+    }
+
+    // Hot rows past their chat type's retention, one short transaction per chunk
+    private void purgeExpiredMessages() {
+        for (Map.Entry<ChatType, Instant> entry : retentionCutoffs().entrySet()) {
+            long deleted = 0;
+            while (true) {
+                Integer count = transactionTemplate.execute(status -> {
+                    List<Long> messageIds = messageRepository.findIdsByRoomTypeSentBefore(
+                            entry.getKey(), entry.getValue(), PageRequest.of(0, chunkSize));
+                    return messageIds.isEmpty() ? 0 : messageRepository.deleteAllByIds(messageIds);
+                });
+                if (count == null || count == 0) {
+                    break;
+                }
+                deleted += count;
+            }
+            if (deleted > 0) {
+                messagesExpired.addAndGet(deleted);
+                recentMessageCache.clear();
+                System.out.println("Deleted " + deleted + " expired " + entry.getKey() + " chat messages");
+            }
+        }
+    }
+
+    // Archived months past a chat type's retention lose that type's segments
+    private void purgeExpiredSegments() {
+        Map<ChatType, Instant> cutoffs = retentionCutoffs();
+        if (cutoffs.isEmpty()) {
+            return;
+        }
+        for (YearMonth month : messageArchive.listMonths()) {
+            Instant monthEnd = month.plusMonths(1).atDay(1).atStartOfDay(ZoneOffset.UTC).toInstant();
+            Set<ChatType> expired = EnumSet.noneOf(ChatType.class);
+            for (Map.Entry<ChatType, Instant> entry : cutoffs.entrySet()) {
+                if (!monthEnd.isAfter(entry.getValue())) {
+                    expired.add(entry.getKey());
+                }
+            }
+            if (expired.isEmpty()) {
+                continue;
+            }
+            for (ChatRoom room : chatRoomRepository.findAllById(messageArchive.listRooms(month))) {
+                if (expired.contains(room.getType())) {
+                    try {
+                        messageArchive.deleteSegment(month, room.getChatRoomId());
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+            }
+        }
+    }
+
+    private Map<ChatType, Instant> retentionCutoffs() {
+        Map<ChatType, Instant> cutoffs = new EnumMap<>(ChatType.class);
+        for (ChatType type : ChatType.values()) {
+            int months = type == ChatType.PRIVATE ? privateRetentionMonths : groupRetentionMonths;
+            if (months > 0) {
+                cutoffs.put(type, ZonedDateTime.now(ZoneOffset.UTC).minusMonths(months).toInstant());
+            }
+        }
+        return cutoffs;
+    }
+
+    private static String partitionName(YearMonth month) {
+        return PARTITION_PREFIX + month.format(PARTITION_SUFFIX);
+    }
+
+    private boolean isPostgres() {
+        try (Connection connection = dataSource.getConnection()) {
+            return connection.getMetaData().getDatabaseProductName().toLowerCase().contains("postgres");
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Buffers the rows of one room at a time (they arrive ordered by room, newest first) and writes
+     * each room's rows as a segment; rows already past retention are left out.
+     */
+    private class SegmentCollector implements RowCallbackHandler {
+        private final YearMonth month;
+        private final Map<ChatType, Instant> retentionCutoffs;
+        private final List<MessageArchive.ArchivedMessage> buffer = new ArrayList<>();
+        private Long chatRoomId;
+        private long archived;
+
+        SegmentCollector(YearMonth month, Map<ChatType, Instant> retentionCutoffs) {
+            this.month = month;
+            this.retentionCutoffs = retentionCutoffs;
+        }
+
+        @Override
+        public void processRow(ResultSet rs) throws SQLException {
+            long rowRoomId = rs.getLong("chat_room_id");
+            if (chatRoomId != null && chatRoomId != rowRoomId) {
+                flush();
+            }
+            chatRoomId = rowRoomId;
+            Instant timestamp = rs.getTimestamp("timestamp").toInstant();
+            Instant cutoff = retentionCutoffs.get(ChatType.valueOf(rs.getString("type")));
+            if (cutoff != null && timestamp.isBefore(cutoff)) {
+                return;
+            }
+            buffer.add(new MessageArchive.ArchivedMessage(rs.getLong("message_id"), rs.getLong("sender_id"),
+                    rs.getString("content"), timestamp, rs.getBoolean("is_read")));
+        }
+
+        void flush() {
+            if (chatRoomId == null || buffer.isEmpty()) {
+                return;
+            }
+            try {
+                messageArchive.writeSegment(month, chatRoomId, buffer);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            archived += buffer.size();
+            buffer.clear();
+        }
+    }
+}
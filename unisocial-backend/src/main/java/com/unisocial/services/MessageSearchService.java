@@ -0,0 +1,232 @@
+package com.unisocial.services;
+
+import com.unisocial.dto.MessageResponse;
+import com.unisocial.dto.MessageSearchHit;
+import com.unisocial.dto.MessageSearchResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Service;
+import org.springframework.web.util.HtmlUtils;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Ranked full-text search over one room's messages.
+ *
+ * On Postgres, messages carry a generated tsvector column that the database
+ * fills on every insert, with a GIN index over (chat_room_id, content_tsv) so a
+ * search reads only the room's matching postings. Snippets come from ts_headline,
+ * computed for the returned page only. MySQL, used for development, gets an
+ * InnoDB FULLTEXT index and MATCH ... AGAINST with snippets cut in Java.
+ *
+ * Only messages still in the database are searched, not archived segments.
+ * Snippets are HTML-escaped with matches wrapped in &lt;mark&gt;.
+ */
+@Service
+public class MessageSearchService {
+
+    private static final int DEFAULT_PAGE_SIZE = 20;
+    private static final int MAX_PAGE_SIZE = 50;
+    private static final int MAX_QUERY_LENGTH = 200;
+    private static final int SNIPPET_RADIUS = 60;
+
+    // Control characters cannot appear in the escaped text, so they mark matches until escaping is done
+    private static final String START_SEL = "\u0002";
+    private static final String STOP_SEL = "\u0003";
+
+    // 'simple' does no stemming or stop words, which suits mixed-language chat and exact links
+    private static final String POSTGRES_SEARCH =
+            "SELECT h.*, ts_headline('simple', h.content, websearch_to_tsquery('simple', ?), " +
+            "'StartSel=" + START_SEL + ", StopSel=" + STOP_SEL + ", MaxFragments=2, MaxWords=20, MinWords=5') AS snippet " +
+            "FROM (SELECT m.message_id, m.sender_id, u.name AS sender_name, m.content, m.\"timestamp\", m.is_read, " +
+            "ts_rank_cd(m.content_tsv, q) AS rank " +
+            "FROM messages m JOIN users u ON u.user_id = m.sender_id, websearch_to_tsquery('simple', ?) q " +
+            "WHERE m.chat_room_id = ? AND m.content_tsv @@ q " +
+            "ORDER BY rank DESC, m.message_id DESC LIMIT ? OFFSET ?) h " +
+            "ORDER BY h.rank DESC, h.message_id DESC";
+
+    private static final String MYSQL_SEARCH =
+            "SELECT m.message_id, m.sender_id, u.name AS sender_name, m.content, m.timestamp, m.is_read, " +
+            "MATCH (m.content) AGAINST (? IN NATURAL LANGUAGE MODE) AS rank_score " +
+            "FROM messages m JOIN users u ON u.user_id = m.sender_id " +
+            "WHERE m.chat_room_id = ? AND MATCH (m.content) AGAINST (? IN NATURAL LANGUAGE MODE) " +
+            "ORDER BY rank_score DESC, m.message_id DESC LIMIT ? OFFSET ?";
+
+    private final DataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+    private final ChatMembershipCache chatMembershipCache;
+
+    private volatile boolean postgres;
+    private volatile boolean ready;
+
+    // Deep pages of a ranked result set get expensive; nobody reads that far
+    @Value("${chat.search.max-offset:1000}")
+    private int maxOffset;
+
+    public MessageSearchService(DataSource dataSource, JdbcTemplate jdbcTemplate,
+                                ChatMembershipCache chatMembershipCache) {
+        this.dataSource = dataSource;
+        this.jdbcTemplate = jdbcTemplate;
+        this.chatMembershipCache = chatMembershipCache;
+    }
+
+    /**
+     * Adds the search column and index if missing. Adding the generated column
+     * rewrites the table once; later starts only run the existence checks.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void createIndex() {
+        try {
+            postgres = isPostgres();
+            if (postgres) {
+                jdbcTemplate.execute("ALTER TABLE messages ADD COLUMN IF NOT EXISTS content_tsv tsvector " +
+                        "GENERATED ALWAYS AS (to_tsvector('simple', content)) STORED");
+                try {
+                    jdbcTemplate.execute("CREATE EXTENSION IF NOT EXISTS btree_gin");
+                    jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_messages_content_tsv " +
+                            "ON messages USING GIN (chat_room_id, content_tsv)");
+                } catch (RuntimeException e) {
+                    // Without btree_gin the room filter is applied to the GIN matches instead
+                    jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_messages_content_tsv " +
+                            "ON messages USING GIN (content_tsv)");
+                }
+            } else {
+                Integer existing = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM information_schema.statistics " +
+                        "WHERE table_schema = DATABASE() AND table_name = 'messages' " +
+                        "AND index_name = 'idx_messages_content_ft'", Integer.class);
+                if (existing == null || existing == 0) {
+                    jdbcTemplate.execute("CREATE FULLTEXT INDEX idx_messages_content_ft ON messages (content)");
+                }
+            }
+            ready = true;
+        } catch (RuntimeException e) {
+            System.err.println("Could not create the message search index: " + e.getMessage());
+        }
+    }
+
+    public MessageSearchResponse search(Long chatRoomId, Long userId, String query, Integer page, Integer size) {
+        chatMembershipCache.requireMember(chatRoomId, userId);
+        String terms = query == null ? "" : query.trim();
+        if (terms.isEmpty()) {
+            throw new RuntimeException("Search query is required");
+        }
+        if (terms.length() > MAX_QUERY_LENGTH) {
+            throw new RuntimeException("Search query is too long");
+        }
+        if (!ready) {
+            throw new RuntimeException("Message search is not available");
+        }
+        int pageNumber = page == null || page < 0 ? 0 : page;
+        int pageSize = size == null || size <= 0 ? DEFAULT_PAGE_SIZE : Math.min(size, MAX_PAGE_SIZE);
+        int offset = pageNumber * pageSize;
+        if (offset > maxOffset) {
+            throw new RuntimeException("Search results are limited to the first " + maxOffset + " matches");
+        }
+
+        // Fetch one extra row to know whether another page exists
+        List<MessageSearchHit> hits = postgres
+                ? jdbcTemplate.query(POSTGRES_SEARCH, hitMapper(chatRoomId, null),
+                        terms, terms, chatRoomId, pageSize + 1, offset)
+                : jdbcTemplate.query(MYSQL_SEARCH, hitMapper(chatRoomId, terms),
+                        terms, chatRoomId, terms, pageSize + 1, offset);
+        boolean hasMore = hits.size() > pageSize;
+        if (hasMore) {
+            hits = hits.subList(0, pageSize);
+        }
+        return new MessageSearchResponse(hits, pageNumber, hasMore);
+    }
+
+    // With terms, snippets are cut in Java; without, the query's highlighted snippet column is used
+    private RowMapper<MessageSearchHit> hitMapper(Long chatRoomId, String terms) {
+        return (rs, rowNum) -> {
+            MessageResponse message = new MessageResponse(
+                    rs.getLong("message_id"),
+                    chatRoomId,
+                    rs.getLong("sender_id"),
+                    rs.getString("sender_name"),
+                    rs.getString("content"),
+                    rs.getTimestamp("timestamp").toInstant(),
+                    rs.getBoolean("is_read"));
+            String marked = terms == null ? rs.getString("snippet") : markSnippet(message.getContent(), terms);
+            double rank = rs.getDouble(terms == null ? "rank" : "rank_score");
+            return new MessageSearchHit(message, toHtml(marked), rank);
+        };
+    }
+
+    // A window around the first matching term with every term occurrence marked. Matching is
+    // case-insensitive on the original text: lowercasing can change its length, so offsets
+    // found in a lowercased copy would not line up with the content they are applied to.
+    private static String markSnippet(String content, String terms) {
+        List<String> words = new ArrayList<>();
+        for (String word : terms.split("\\W+")) {
+            if (!word.isEmpty()) {
+                words.add(word);
+            }
+        }
+        int first = -1;
+        for (String word : words) {
+            int at = indexOfIgnoreCase(content, word);
+            if (at >= 0 && (first < 0 || at < first)) {
+                first = at;
+            }
+        }
+        int start = first < 0 ? 0 : Math.max(0, first - SNIPPET_RADIUS);
+        int end = Math.min(content.length(), (first < 0 ? 0 : first) + SNIPPET_RADIUS * 2);
+        String window = content.substring(start, end);
+
+        StringBuilder marked = new StringBuilder(start > 0 ? "..." : "");
+        int i = 0;
+        while (i < window.length()) {
+            String match = null;
+            for (String word : words) {
+                if (window.regionMatches(true, i, word, 0, word.length())
+                        && (match == null || word.length() > match.length())) {
+                    match = word;
+                }
+            }
+            if (match != null) {
+                marked.append(START_SEL).append(window, i, i + match.length()).append(STOP_SEL);
+                i += match.length();
+            } else {
+                marked.append(window.charAt(i++));
+            }
+        }
+        if (end < content.length()) {
+            marked.append("...");
+        }
+        return marked.toString();
+    }
+
+    private static int indexOfIgnoreCase(String text, String word) {
+        for (int i = 0; i + word.length() <= text.length(); i++) {
+            if (text.regionMatches(true, i, word, 0, word.length())) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static String toHtml(String marked) {
+        if (marked == null) {
+            return null;
+        }
+        return HtmlUtils.htmlEscape(marked)
+                .replace(START_SEL, "<mark>")
+                .replace(STOP_SEL, "</mark>");
+    }
+
+    private boolean isPostgres() {
+        try (Connection connection = dataSource.getConnection()) {
+            return connection.getMetaData().getDatabaseProductName().toLowerCase().contains("postgres");
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package com.unisocial.services;
+
+import com.unisocial.models.Message;
+import com.unisocial.repositories.MessageRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Group-commit writer for chat messages. Senders enqueue their message and wait;
+ * a single writer thread drains everything queued so far and inserts it as one
+ * JDBC batch in one transaction. An idle room sees no added latency (a batch of
+ * one), while a burst such as a club announcement thread shares one round trip
+ * and one commit per batch on a single connection.
+ */
+@Service
+public class MessageWriteBatcher {
+
+    private final MessageRepository messageRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    private BlockingQueue<PendingWrite> queue;
+    private Thread writer;
+    private volatile boolean running = true;
+
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong messagesWritten = new AtomicLong();
+    private final AtomicLong largestBatch = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong timedOut = new AtomicLong();
+
+    @Value("${chat.write.max-batch-size:200}")
+    private int maxBatchSize;
+
+    @Value("${chat.write.queue-capacity:10000}")
+    private int queueCapacity;
+
+    @Value("${chat.write.timeout-ms:5000}")
+    private long timeoutMs;
+
+    public MessageWriteBatcher(MessageRepository messageRepository, TransactionTemplate transactionTemplate) {
+        this.messageRepository = messageRepository;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    @PostConstruct
+    public void start() {
+        queue = new LinkedBlockingQueue<>(queueCapacity);
+        writer = new Thread(this::runWriter, "chat-message-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Inserts the message and returns it with its id once the insert has committed.
+     * If this times out, the insert may still commit afterwards; {@code onLateCommit}
+     * is then called with the saved message on the writer thread, so the caller can
+     * still announce a message it could no longer return.
+     */
+    public Message write(Message message, Consumer<Message> onLateCommit) {
+        PendingWrite pending = new PendingWrite(message);
+        if (!running || !queue.offer(pending)) {
+            rejected.incrementAndGet();
+            throw new RuntimeException("Chat is busy, please try again");
+        }
+        try {
+            return pending.result.get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            announceWhenWritten(pending, onLateCommit);
+            throw new RuntimeException("Interrupted while sending message");
+        } catch (TimeoutException e) {
+            announceWhenWritten(pending, onLateCommit);
+            timedOut.incrementAndGet();
+            throw new RuntimeException("Timed out sending message; it will still appear if it was saved");
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Failed to send message: " + e.getCause().getMessage());
+        }
+    }
+
+    // Runs on the writer thread once the insert commits, or right away if it already has
+    private void announceWhenWritten(PendingWrite pending, Consumer<Message> onLateCommit) {
+        pending.result.thenAccept(saved -> {
+            try {
+                onLateCommit.accept(saved);
+            } catch (RuntimeException e) {
+                System.err.println("Failed to announce late chat message " + saved.getMessageId() + ": " + e.getMessage());
+            }
+        });
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new HashMap<>();
+        long batchCount = batches.get();
+        metrics.put("batches", batchCount);
+        metrics.put("messagesWritten", messagesWritten.get());
+        metrics.put("averageBatchSize", batchCount == 0 ? 0.0 : (double) messagesWritten.get() / batchCount);
+        metrics.put("largestBatch", largestBatch.get());
+        metrics.put("queued", queue.size());
+        metrics.put("rejected", rejected.get());
+        metrics.put("timedOut", timedOut.get());
+        return metrics;
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        writer.join(timeoutMs);
+        // Write whatever was accepted but not yet taken by the writer
+        List<PendingWrite> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        if (!remaining.isEmpty()) {
+            writeBatch(remaining);
+        }
+    }
+
+    private void runWriter() {
+        List<PendingWrite> batch = new ArrayList<>(maxBatchSize);
+        while (running) {
+            PendingWrite first;
+            try {
+                // Polling rather than take() lets shutdown stop the loop without interrupting a JDBC call
+                first = queue.poll(500, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                break;
+            }
+            if (first == null) {
+                continue;
+            }
+            batch.add(first);
+            queue.drainTo(batch, maxBatchSize - 1);
+            writeBatch(batch);
+            batch.clear();
+        }
+    }
+
+    private void writeBatch(List<PendingWrite> batch) {
+        try {
+            insert(batch);
+        } catch (RuntimeException e) {
+            if (batch.size() == 1) {
+                batch.get(0).result.completeExceptionally(e);
+                return;
+            }
+            // One bad row (e.g. a room deleted meanwhile) fails the whole batch; isolate it
+            for (PendingWrite pending : batch) {
+                try {
+                    insert(List.of(pending));
+                } catch (RuntimeException single) {
+                    pending.result.completeExceptionally(single);
+                }
+            }
+        }
+    }
+
+    private void insert(List<PendingWrite> batch) {
+        List<Message> messages = new ArrayList<>(batch.size());
+        for (PendingWrite pending : batch) {
+            messages.add(pending.message);
+        }
+        transactionTemplate.executeWithoutResult(status -> messageRepository.insertAll(messages));
+        batches.incrementAndGet();
+        messagesWritten.addAndGet(messages.size());
+        largestBatch.accumulateAndGet(messages.size(), Math::max);
+        for (PendingWrite pending : batch) {
+            pending.result.complete(pending.message);
+        }
+    }
+
+    private static class PendingWrite {
+        private final Message message;
+        private final CompletableFuture<Message> result = new CompletableFuture<>();
+
+        PendingWrite(Message message) {
+            this.message = message;
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.unisocial.services;
+
+import com.unisocial.models.AuthorType;
+import com.unisocial.models.Club;
+import com.unisocial.models.Post;
+import com.unisocial.models.User;
+import com.unisocial.repositories.ClubRepository;
+import com.unisocial.repositories.UserRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Loads the authors of a batch of posts with one IN query per AuthorType,
+ * instead of a findById per post.
+ */
+@Service
+@Transactional(readOnly = true)
+public class PostAuthorResolver {
+
+    private final UserRepository userRepository;
+    private final ClubRepository clubRepository;
+
+    public PostAuthorResolver(UserRepository userRepository, ClubRepository clubRepository) {
+        this.userRepository = userRepository;
+        this.clubRepository = clubRepository;
+    }
+
+    public Authors resolve(Collection<Post> posts) {
+        Set<Long> userIds = new HashSet<>();
+        Set<Long> clubIds = new HashSet<>();
+        for (Post post : posts) {
+            if (post.getAuthor() == null) {
+                continue;
+            }
+            if (post.getAuthorType() == AuthorType.CLUB) {
+                clubIds.add(post.getAuthor());
+            } else {
+                userIds.add(post.getAuthor());
+            }
+        }
+
+        Map<Long, User> users = new HashMap<>();
+        if (!userIds.isEmpty()) {
+            for (User user : userRepository.findAllById(userIds)) {
+                users.put(user.getUserId(), user);
+            }
+        }
+        Map<Long, Club> clubs = new HashMap<>();
+        if (!clubIds.isEmpty()) {
+            for (Club club : clubRepository.findAllById(clubIds)) {
+                clubs.put(club.getClubId(), club);
+            }
+        }
+        return new Authors(users, clubs);
+    }
+
+    public static class Authors {
+        private final Map<Long, User> users;
+        private final Map<Long, Club> clubs;
+
+        Authors(Map<Long, User> users, Map<Long, Club> clubs) {
+            this.users = users;
+            this.clubs = clubs;
+        }
+
+        // Returns null when the author no longer exists
+        public String getName(Post post) {
+            if (post.getAuthorType() == AuthorType.CLUB) {
+                Club club = clubs.get(post.getAuthor());
+                return club != null ? club.getName() : null;
+            }
+            User user = users.get(post.getAuthor());
+            return user != null ? user.getName() : null;
+        }
+
+        public String getDpUrl(Post post) {
+            if (post.getAuthorType() == AuthorType.CLUB) {
+                Club club = clubs.get(post.getAuthor());
+                return club != null ? club.getLogoUrl() : null;
+            }
+            User user = users.get(post.getAuthor());
+            return user != null ? user.getDpUrl() : null;
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.unisocial.services;
+
+import com.unisocial.repositories.CommentRepository;
+import com.unisocial.repositories.LikeRepository;
+import com.unisocial.repositories.PostRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Periodically repairs drift between the denormalized posts.like_count/comment_count
+ * columns and the likes/comments tables. Walks posts in id order, one short
+ * transaction per chunk, and only rewrites rows whose counters are off.
+ */
+@Service
+public class PostCountReconciler {
+
+    private final PostRepository postRepository;
+    private final LikeRepository likeRepository;
+    private final CommentRepository commentRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${posts.counts.reconcile-chunk-size:500}")
+    private int chunkSize;
+
+    // Recently liked posts may still have unflushed deltas in LikeCounterBuffer
+    @Value("${likes.counter.settle-ms:10000}")
+    private long settleMs;
+
+    public PostCountReconciler(PostRepository postRepository,
+                               LikeRepository likeRepository,
+                               CommentRepository commentRepository,
+                               TransactionTemplate transactionTemplate) {
+        this.postRepository = postRepository;
+        this.likeRepository = likeRepository;
+        this.commentRepository = commentRepository;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    @Scheduled(initialDelayString = "${posts.counts.reconcile-initial-delay-ms:60000}",
+               fixedDelayString = "${posts.counts.reconcile-interval-ms:3600000}")
+    public void reconcileAll() {
+        long afterId = 0L;
+        int repaired = 0;
+        while (true) {
+            long cursor = afterId;
+            ChunkResult result = transactionTemplate.execute(status -> reconcileChunk(cursor));
+            if (result == null || result.lastPostId == null) {
+                break;
+            }
+            repaired += result.repaired;
+            afterId = result.lastPostId;
+        }
+        if (repaired > 0) {
+            System.out.println("Reconciled counters on " + repaired + " posts");
+        }
+    }
+
+    private ChunkResult reconcileChunk(long afterId) {
+        List<Object[]> rows = postRepository.findCountsAfter(afterId, PageRequest.of(0, chunkSize));
+        if (rows.isEmpty()) {
+            return new ChunkResult(null, 0);
+        }
+
+        List<Long> postIds = rows.stream()
+                .map(row -> ((Number) row[0]).longValue())
+                .collect(Collectors.toList());
+        LongCountMap likeCounts = LongCountMap.fromRows(likeRepository.countGroupedByPostIds(postIds));
+        LongCountMap commentCounts = LongCountMap.fromRows(commentRepository.countGroupedByPostIds(postIds));
+
+        List<Long> drifted = new ArrayList<>();
+        for (Object[] row : rows) {
+            long postId = ((Number) row[0]).longValue();
+            long storedLikes = ((Number) row[1]).longValue();
+            long storedComments = ((Number) row[2]).longValue();
+            if (storedLikes != likeCounts.get(postId) || storedComments != commentCounts.get(postId)) {
+                drifted.add(postId);
+            }
+        }
+        if (!drifted.isEmpty()) {
+            drifted.removeAll(likeRepository.findPostIdsLikedSinceIn(Instant.now().minusMillis(settleMs), drifted));
+        }
+        // Recount inside the UPDATE itself so concurrent likes between the check and the fix are not lost
+        if (!drifted.isEmpty()) {
+            postRepository.recomputeCounts(drifted);
+        }
+        return new ChunkResult(postIds.get(postIds.size() - 1), drifted.size());
+    }
+
+    private static class ChunkResult {
+        private final Long lastPostId;
+        private final int repaired;
+
+        ChunkResult(Long lastPostId, int repaired) {
+            this.lastPostId = lastPostId;
+            this.repaired = repaired;
+        }
+    }
+}
@@ -0,0 +1,210 @@
+package com.unisocial.services;
+
+import com.unisocial.repositories.CommentRepository;
+import com.unisocial.repositories.LikeRepository;
+import com.unisocial.repositories.PostRepository;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Deletes the likes and comments of large posts in the background, one short
+ * transaction per chunk, then removes the post row. The post is hidden (deleted_at
+ * set) before the purge starts, so moderation takes effect immediately without
+ * one long transaction holding locks on thousands of rows. A step that fails, e.g.
+ * the final delete tripping over a like that committed after the last chunk, is
+ * retried a few times before the purge is left for the next startup.
+ */
+@Service
+public class PostPurgeService {
+
+    private final PostRepository postRepository;
+    private final LikeRepository likeRepository;
+    private final CommentRepository commentRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    private final Map<Long, Progress> progress = new ConcurrentHashMap<>();
+    private final ExecutorService worker = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "post-purge");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @Value("${posts.purge.chunk-size:1000}")
+    private int chunkSize;
+
+    // Posts with more likes + comments than this are purged in the background
+    @Value("${posts.purge.async-threshold:5000}")
+    private long asyncThreshold;
+
+    @Value("${posts.purge.max-attempts:3}")
+    private int maxAttempts;
+
+    @Value("${posts.purge.retry-delay-ms:2000}")
+    private long retryDelayMs;
+
+    public PostPurgeService(PostRepository postRepository,
+                            LikeRepository likeRepository,
+                            CommentRepository commentRepository,
+                            TransactionTemplate transactionTemplate) {
+        this.postRepository = postRepository;
+        this.likeRepository = likeRepository;
+        this.commentRepository = commentRepository;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    public boolean shouldPurgeAsync(long likes, long comments) {
+        return likes + comments > asyncThreshold;
+    }
+
+    /**
+     * Hides the post and queues its purge once the current transaction commits.
+     */
+    public void schedulePurge(Long postId, long expectedLikes, long expectedComments) {
+        postRepository.markDeleted(postId, Instant.now());
+        progress.put(postId, new Progress(expectedLikes, expectedComments));
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    worker.execute(() -> purge(postId));
+                }
+            });
+        } else {
+            worker.execute(() -> purge(postId));
+        }
+    }
+
+    public Map<String, Object> getProgress(Long postId) {
+        Progress p = progress.get(postId);
+        return p != null ? p.toMap(postId) : null;
+    }
+
+    /**
+     * Resumes purges interrupted by a restart.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumePending() {
+        for (Long postId : postRepository.findMarkedDeletedIds()) {
+            progress.putIfAbsent(postId, new Progress(-1, -1));
+            worker.execute(() -> purge(postId));
+        }
+    }
+
+    private void purge(Long postId) {
+        Progress p = progress.get(postId);
+        p.state = "RUNNING";
+        try {
+            for (int attempt = 1; ; attempt++) {
+                try {
+                    purgeOnce(postId, p);
+                    p.state = "DONE";
+                    p.error = null;
+                    return;
+                } catch (RuntimeException e) {
+                    p.error = e.getMessage();
+                    if (attempt >= maxAttempts) {
+                        // Left marked as deleted; the next startup resumes it
+                        p.state = "FAILED";
+                        return;
+                    }
+                    p.state = "RETRYING";
+                    Thread.sleep(retryDelayMs * attempt);
+                    p.state = "RUNNING";
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            p.state = "FAILED";
+        } finally {
+            p.finishedAt = Instant.now();
+        }
+    }
+
+    // Every step only deletes what is still there, so a failed pass can simply run again
+    private void purgeOnce(Long postId, Progress p) {
+        PageRequest chunk = PageRequest.of(0, chunkSize);
+
+        // Detach replies first so deleting a parent never trips the self-referencing foreign key
+        while (true) {
+            Integer detached = transactionTemplate.execute(status -> {
+                List<Long> ids = commentRepository.findReplyIdsByPostId(postId, chunk);
+                return ids.isEmpty() ? 0 : commentRepository.detachReplies(ids);
+            });
+            if (detached == null || detached == 0) {
+                break;
+            }
+        }
+        while (true) {
+            Integer deleted = transactionTemplate.execute(status -> {
+                List<Long> ids = commentRepository.findIdsByPostId(postId, chunk);
+                return ids.isEmpty() ? 0 : commentRepository.deleteAllByIds(ids);
+            });
+            if (deleted == null || deleted == 0) {
+                break;
+            }
+            p.commentsDeleted += deleted;
+        }
+        while (true) {
+            Integer deleted = transactionTemplate.execute(status -> {
+                List<Long> ids = likeRepository.findIdsByPostId(postId, chunk);
+                return ids.isEmpty() ? 0 : likeRepository.deleteAllByIds(ids);
+            });
+            if (deleted == null || deleted == 0) {
+                break;
+            }
+            p.likesDeleted += deleted;
+        }
+        transactionTemplate.executeWithoutResult(status -> postRepository.hardDelete(postId));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        worker.shutdownNow();
+    }
+
+    private static class Progress {
+        private final long expectedLikes;
+        private final long expectedComments;
+        private final Instant startedAt = Instant.now();
+        private volatile String state = "QUEUED";
+        private volatile long likesDeleted;
+        private volatile long commentsDeleted;
+        private volatile Instant finishedAt;
+        private volatile String error;
+
+        Progress(long expectedLikes, long expectedComments) {
+            this.expectedLikes = expectedLikes;
+            this.expectedComments = expectedComments;
+        }
+
+        Map<String, Object> toMap(Long postId) {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("postId", postId);
+            map.put("state", state);
+            map.put("likesDeleted", likesDeleted);
+            map.put("commentsDeleted", commentsDeleted);
+            // -1 when the purge was resumed after a restart and totals are unknown
+            map.put("expectedLikes", expectedLikes);
+            map.put("expectedComments", expectedComments);
+            map.put("startedAt", startedAt);
+            map.put("finishedAt", finishedAt);
+            map.put("error", error);
+            return map;
+        }
+    }
+}
@@ -1,6 +1,10 @@
 package com.unisocial.services;
 
+import com.unisocial.dto.FeedCursor;
+import com.unisocial.dto.FeedPageResponse;
 import com.unisocial.dto.PostResponse;
+import com.unisocial.events.PostCreatedEvent;
+import com.unisocial.events.PostDeletedEvent;
 import com.unisocial.models.AuthorType;
 import com.unisocial.models.MediaType;
 import com.unisocial.models.Post;
@@ -16,32 +20,60 @@ import com.unisocial.repositories.CommentRepository;
 import com.unisocial.repositories.LikeRepository;
 import com.unisocial.repositories.ClubRepository;
 import com.unisocial.repositories.ClubMembershipRepository;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 @Service
 public class PostService {
 
+    private static final int DEFAULT_PAGE_SIZE = 20;
+    private static final int MAX_PAGE_SIZE = 100;
+    private static final int LIKED_LOOKUP_CHUNK_SIZE = 1000;
+
     private final PostRepository postRepository;
     private final UserRepository userRepository;
     private final CommentRepository commentRepository;
     private final LikeRepository likeRepository;
     private final ClubRepository clubRepository;
     private final ClubMembershipRepository clubMembershipRepository;
+    private final PostAuthorResolver postAuthorResolver;
+    private final LikeCounterBuffer likeCounterBuffer;
+    private final ApplicationEventPublisher eventPublisher;
+    private final HotFeedRanking hotFeedRanking;
+    private final PostPurgeService postPurgeService;
+    private final TimelineService timelineService;
 
     public PostService(PostRepository postRepository, UserRepository userRepository,
                       CommentRepository commentRepository, LikeRepository likeRepository,
-                      ClubRepository clubRepository, ClubMembershipRepository clubMembershipRepository) {
+                      ClubRepository clubRepository, ClubMembershipRepository clubMembershipRepository,
+                      PostAuthorResolver postAuthorResolver, LikeCounterBuffer likeCounterBuffer,
+                      ApplicationEventPublisher eventPublisher, HotFeedRanking hotFeedRanking,
+                      PostPurgeService postPurgeService, TimelineService timelineService) {
         this.postRepository = postRepository;
         this.userRepository = userRepository;
         this.commentRepository = commentRepository;
         this.likeRepository = likeRepository;
         this.clubRepository = clubRepository;
         this.clubMembershipRepository = clubMembershipRepository;
+        this.postAuthorResolver = postAuthorResolver;
+        this.likeCounterBuffer = likeCounterBuffer;
+        this.eventPublisher = eventPublisher;
+        this.hotFeedRanking = hotFeedRanking;
+        this.postPurgeService = postPurgeService;
+        this.timelineService = timelineService;
     }
 
     public Post createPost(User user, String contentText, String mediaUrl, MediaType mediaType) {
@@ -55,25 +87,101 @@ public class PostService {
         } else {
             post.setMediaType(MediaType.TEXT);
         }
-        return postRepository.save(post);
+        Post saved = postRepository.save(post);
+        eventPublisher.publishEvent(new PostCreatedEvent(saved.getPostId(), user.getUserId(), AuthorType.USER,
+                user.getName(), user.getDpUrl(), saved.getCreatedAt()));
+        return saved;
     }
 
-    public List<PostResponse> getPostsByUser(String userId) {
-        List<PostResponse> data =  postRepository.findByAuthorId(Long.valueOf(userId)).stream()
-                .map(this::toResponse)
-                .collect(Collectors.toList());
+    public List<PostResponse> getPostsByUser(String userId, Long viewerId) {
+        List<PostResponse> data = toResponses(postRepository.findByAuthorId(Long.valueOf(userId)), viewerId);
         System.out.println("data: " + data.get(0).getAuthorId().toString());
         return data;
     }
 
-    public List<PostResponse> getFeed() {
-        return postRepository.findAllByOrderByCreatedAtDesc().stream()
-                .map(this::toResponse)
-                .collect(Collectors.toList());
+    public List<PostResponse> getFeed(Long viewerId) {
+        return toResponses(postRepository.findAllByOrderByCreatedAtDesc(), viewerId);
+    }
+
+    /**
+     * Keyset-paginated feed: each page is a bounded index range scan on (created_at, post_id),
+     * so its cost does not depend on how many posts exist.
+     */
+    public FeedPageResponse getFeedPage(String before, Integer limit, Long viewerId) {
+        int pageSize = clampPageSize(limit);
+        // Fetch one extra row to know whether an older page exists
+        PageRequest page = PageRequest.of(0, pageSize + 1);
+        List<Post> posts;
+        if (StringUtils.hasText(before)) {
+            FeedCursor cursor = FeedCursor.decode(before);
+            posts = postRepository.findFeedPageBefore(cursor.getCreatedAt(), cursor.getId(), page);
+        } else {
+            posts = postRepository.findAllByOrderByCreatedAtDescPostIdDesc(page);
+        }
+        return toPage(posts, pageSize, viewerId);
     }
 
+    /**
+     * Hot feed page: ids come from the in-memory top-K ranking, so a read costs
+     * one hydration of the page rather than scoring the whole table.
+     */
+    public FeedPageResponse getHotFeedPage(String before, Integer limit, Long viewerId) {
+        HotFeedRanking.HotPage page = hotFeedRanking.getPage(before, clampPageSize(limit));
+        List<Post> posts = hydrate(page.getPostIds(), hotFeedRanking::remove);
+        return new FeedPageResponse(toResponses(posts, viewerId), page.getNextCursor());
+    }
+
+    /**
+     * Home timeline page: ids are a slice of the user's fan-out timeline, so a read
+     * is one hydration of the page instead of joining memberships and posts.
+     */
+    public FeedPageResponse getTimelinePage(Long userId, String before, Integer limit) {
+        TimelineService.TimelinePage page = timelineService.getPage(userId, before, clampPageSize(limit));
+        // Deleted posts simply drop out of the page
+        List<Post> posts = hydrate(page.getPostIds(), postId -> { });
+        return new FeedPageResponse(toResponses(posts, userId), page.getNextCursor());
+    }
+
+    // Loads posts by id in one query, keeping the given order; ids with no visible post go to onMissing
+    private List<Post> hydrate(List<Long> postIds, Consumer<Long> onMissing) {
+        Map<Long, Post> byId = new HashMap<>();
+        for (Post post : postRepository.findAllById(postIds)) {
+            byId.put(post.getPostId(), post);
+        }
+        List<Post> posts = new ArrayList<>(postIds.size());
+        for (Long postId : postIds) {
+            Post post = byId.get(postId);
+            if (post != null) {
+                posts.add(post);
+            } else {
+                onMissing.accept(postId);
+            }
+        }
+        return posts;
+    }
+
+    private FeedPageResponse toPage(List<Post> posts, int pageSize, Long viewerId) {
+        String nextCursor = null;
+        if (posts.size() > pageSize) {
+            posts = posts.subList(0, pageSize);
+            Post last = posts.get(pageSize - 1);
+            nextCursor = new FeedCursor(last.getCreatedAt(), last.getPostId()).encode();
+        }
+        return new FeedPageResponse(toResponses(posts, viewerId), nextCursor);
+    }
+
+    private int clampPageSize(Integer limit) {
+        if (limit == null || limit <= 0) {
+            return DEFAULT_PAGE_SIZE;
+        }
+        return Math.min(limit, MAX_PAGE_SIZE);
+    }
+
+    /**
+     * @return true when the post was hidden and its purge continues in the background
+     */
     @Transactional
-    public void deletePost(Long postId, Long userId) {
+    public boolean deletePost(Long postId, Long userId) {
         Post post = postRepository.findById(postId)
                 .orElseThrow(() -> new RuntimeException("Post not found"));
         
@@ -89,14 +197,24 @@ public class PostService {
             throw new RuntimeException("You are not authorized to delete this post");
         }
         
-        // Delete all comments associated with this post first
-        commentRepository.deleteByPost_PostId(postId);
-        
-        // Delete all likes associated with this post
-        likeRepository.deleteByPost_PostId(postId);
-        
+        long likes = post.getLikeCount() + likeCounterBuffer.pendingDelta(postId);
+        long comments = post.getCommentCount();
+        eventPublisher.publishEvent(new PostDeletedEvent(postId));
+
+        // Large posts are hidden now and purged in chunks so one delete cannot hold locks for long
+        if (postPurgeService.shouldPurgeAsync(likes, comments)) {
+            postPurgeService.schedulePurge(postId, likes, comments);
+            return true;
+        }
+
+        // Bulk statements; replies are detached first so the self-referencing foreign key never blocks
+        commentRepository.detachRepliesByPostId(postId);
+        commentRepository.deleteAllByPostId(postId);
+        likeRepository.deleteAllByPostId(postId);
+
         // Now delete the post itself
         postRepository.delete(post);
+        return false;
     }
 
     public PostResponse createClubPost(User user, Long clubId, String contentText, String mediaUrl, MediaType mediaType) {
@@ -125,54 +243,77 @@ public class PostService {
         }
 
         Post savedPost = postRepository.save(post);
+        eventPublisher.publishEvent(new PostCreatedEvent(savedPost.getPostId(), clubId, AuthorType.CLUB,
+                club.getName(), club.getLogoUrl(), savedPost.getCreatedAt()));
         return toResponse(savedPost);
     }
 
-    public List<PostResponse> getPostsByClub(Long clubId) {
-        // Get all posts where authorType = CLUB and author = clubId
-        return postRepository.findAllByOrderByCreatedAtDesc().stream()
-                .filter(post -> post.getAuthorType() == AuthorType.CLUB && post.getAuthor().equals(clubId))
-                .map(this::toResponse)
-                .collect(Collectors.toList());
+    public List<PostResponse> getPostsByClub(Long clubId, Long viewerId) {
+        return toResponses(postRepository.findByAuthorTypeAndAuthorIdOrderByCreatedAtDescPostIdDesc(AuthorType.CLUB, clubId), viewerId);
+    }
+
+    /**
+     * Keyset-paginated club posts, an index range scan on (author_type, author_id, created_at, post_id).
+     */
+    public FeedPageResponse getClubPostsPage(Long clubId, String before, Integer limit, Long viewerId) {
+        int pageSize = clampPageSize(limit);
+        PageRequest page = PageRequest.of(0, pageSize + 1);
+        List<Post> posts;
+        if (StringUtils.hasText(before)) {
+            FeedCursor cursor = FeedCursor.decode(before);
+            posts = postRepository.findAuthorPageBefore(AuthorType.CLUB, clubId, cursor.getCreatedAt(), cursor.getId(), page);
+        } else {
+            posts = postRepository.findByAuthorTypeAndAuthorIdOrderByCreatedAtDescPostIdDesc(AuthorType.CLUB, clubId, page);
+        }
+        return toPage(posts, pageSize, viewerId);
     }
 
     private PostResponse toResponse(Post post) {
-        // Get author name and DP URL based on author type
-        String authorName = "Unknown";
-        String authorDpUrl = null;
-        
-        if (post.getAuthor() != null) {
-            if (post.getAuthorType() == AuthorType.USER) {
-                User author = userRepository.findById(post.getAuthor()).orElse(null);
-                if (author != null) {
-                    authorName = author.getName();
-                    authorDpUrl = author.getDpUrl();
-                }
-            } else if (post.getAuthorType() == AuthorType.CLUB) {
-                Club club = clubRepository.findById(post.getAuthor()).orElse(null);
-                if (club != null) {
-                    authorName = club.getName();
-                    authorDpUrl = club.getLogoUrl();
-                }
+        return toResponses(List.of(post), null).get(0);
+    }
+
+    private List<PostResponse> toResponses(List<Post> posts, Long viewerId) {
+        if (posts.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        // Authors for the whole batch are loaded with one query per author type
+        PostAuthorResolver.Authors authors = postAuthorResolver.resolve(posts);
+
+        // The viewer's likes for the whole batch, so clients need no per-post follow-up. One query
+        // for a page; the unpaged legacy lists are looked up in chunks to stay under bind-parameter limits
+        Set<Long> likedPostIds = Collections.emptySet();
+        if (viewerId != null) {
+            List<Long> postIds = posts.stream().map(Post::getPostId).collect(Collectors.toList());
+            likedPostIds = new HashSet<>();
+            for (int from = 0; from < postIds.size(); from += LIKED_LOOKUP_CHUNK_SIZE) {
+                likedPostIds.addAll(likeRepository.findLikedPostIds(viewerId,
+                        postIds.subList(from, Math.min(from + LIKED_LOOKUP_CHUNK_SIZE, postIds.size()))));
             }
         }
-        
-        // Get like and comment counts
-        int likeCount = (int) likeRepository.countByPostPostId(post.getPostId());
-        int commentCount = (int) commentRepository.countByPostPostId(post.getPostId());
-        
-        return new PostResponse(
-                post.getPostId(),
-                post.getAuthor(),
-                authorName,
-                authorDpUrl,
-                post.getAuthorType(),
-                post.getContentText(),
-                post.getMediaUrl(),
-                post.getMediaType(),
-                post.getCreatedAt(),
-                likeCount,
-                commentCount
-        );
+
+        List<PostResponse> responses = new ArrayList<>(posts.size());
+        for (Post post : posts) {
+            String authorName = authors.getName(post);
+            PostResponse response = new PostResponse(
+                    post.getPostId(),
+                    post.getAuthor(),
+                    authorName != null ? authorName : "Unknown",
+                    authors.getDpUrl(post),
+                    post.getAuthorType(),
+                    post.getContentText(),
+                    post.getMediaUrl(),
+                    post.getMediaType(),
+                    post.getCreatedAt(),
+                    // Include likes still buffered in memory on this node
+                    (int) (post.getLikeCount() + likeCounterBuffer.pendingDelta(post.getPostId())),
+                    (int) post.getCommentCount()
+            );
+            if (viewerId != null) {
+                response.setLikedByCurrentUser(likedPostIds.contains(post.getPostId()));
+            }
+            responses.add(response);
+        }
+        return responses;
     }
 }
@@ -0,0 +1,339 @@
+package com.unisocial.services;
+
+import com.unisocial.events.PresenceChangedEvent;
+import com.unisocial.events.TypingChangedEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Service;
+import org.springframework.web.socket.messaging.SessionConnectedEvent;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+
+import java.security.Principal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory presence and typing state for chat. Nothing here touches the
+ * database: a user is online while they hold an open WebSocket session or sent
+ * a heartbeat within the TTL, and typing flags expire on their own. Entries are
+ * removed as soon as they expire, so memory is bounded by active users.
+ *
+ * Changes are pushed to /topic/presence/{userId} and
+ * /topic/chatroom/{chatRoomId}/typing. Sessions are tracked on the node that
+ * holds them; ChatClusterBridge forwards each node's online/offline and typing
+ * changes to the others and re-announces its online users periodically. Remote
+ * entries expire after the same TTL, so a user counts as online cluster-wide
+ * while any node reports them, and every node gives the same answer.
+ */
+@Service
+public class PresenceRegistry {
+
+    private final SimpMessagingTemplate messagingTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final Map<Long, Presence> presence = new ConcurrentHashMap<>();
+    // userId -> (nodeId -> last seen millis) as reported by other nodes
+    private final Map<Long, Map<String, Long>> remotePresence = new ConcurrentHashMap<>();
+    private final Map<String, Long> sessionUsers = new ConcurrentHashMap<>();
+    // chatRoomId -> (userId -> typing expiry millis)
+    private final Map<Long, Map<Long, Long>> typing = new ConcurrentHashMap<>();
+
+    @Value("${chat.presence.ttl-ms:60000}")
+    private long presenceTtlMs;
+
+    @Value("${chat.presence.typing-ttl-ms:6000}")
+    private long typingTtlMs;
+
+    @Value("${chat.presence.max-users:100000}")
+    private int maxUsers;
+
+    public PresenceRegistry(SimpMessagingTemplate messagingTemplate, ApplicationEventPublisher eventPublisher) {
+        this.messagingTemplate = messagingTemplate;
+        this.eventPublisher = eventPublisher;
+    }
+
+    @EventListener
+    public void onConnected(SessionConnectedEvent event) {
+        Long userId = userIdOf(event.getUser());
+        if (userId == null) {
+            return;
+        }
+        sessionUsers.put(SimpMessageHeaderAccessor.getSessionId(event.getMessage().getHeaders()), userId);
+        if (touch(userId, 1)) {
+            localPresenceChanged(userId, true);
+        }
+    }
+
+    @EventListener
+    public void onDisconnected(SessionDisconnectEvent event) {
+        Long userId = sessionUsers.remove(event.getSessionId());
+        if (userId == null) {
+            return;
+        }
+        Presence entry = presence.computeIfPresent(userId, (id, p) -> {
+            p.sessions = Math.max(0, p.sessions - 1);
+            p.lastSeen = System.currentTimeMillis();
+            return p;
+        });
+        // Stays online until the heartbeat TTL runs out, so a page reload does not flicker offline
+        if (entry != null && entry.sessions == 0) {
+            clearTyping(userId);
+        }
+    }
+
+    public void heartbeat(Long userId) {
+        if (touch(userId, 0)) {
+            localPresenceChanged(userId, true);
+        }
+    }
+
+    public void setTyping(Long chatRoomId, Long userId, boolean isTyping) {
+        Map<Long, Long> roomTyping = typing.computeIfAbsent(chatRoomId, id -> new ConcurrentHashMap<>());
+        Long previous = isTyping
+                ? roomTyping.put(userId, System.currentTimeMillis() + typingTtlMs)
+                : roomTyping.remove(userId);
+        if (roomTyping.isEmpty()) {
+            typing.remove(chatRoomId, roomTyping);
+        }
+        // Repeated "still typing" signals only extend the expiry
+        if (isTyping != (previous != null)) {
+            localTypingChanged(chatRoomId, userId, isTyping);
+        }
+    }
+
+    /**
+     * A user came online or went offline on another node.
+     */
+    public void applyRemotePresence(String nodeId, Long userId, boolean online) {
+        long now = System.currentTimeMillis();
+        boolean wasOnline = isOnline(userId, now);
+        if (online) {
+            if (!remotePresence.containsKey(userId) && remotePresence.size() >= maxUsers) {
+                return;
+            }
+            remotePresence.computeIfAbsent(userId, id -> new ConcurrentHashMap<>()).put(nodeId, now);
+        } else {
+            remotePresence.computeIfPresent(userId, (id, nodes) -> {
+                nodes.remove(nodeId);
+                return nodes.isEmpty() ? null : nodes;
+            });
+        }
+        if (wasOnline != isOnline(userId, now)) {
+            publishPresence(userId, !wasOnline);
+        }
+    }
+
+    /**
+     * Periodic list of the users online on another node; keeps their remote entries alive.
+     */
+    public void refreshRemotePresence(String nodeId, Collection<Long> userIds) {
+        for (Long userId : userIds) {
+            applyRemotePresence(nodeId, userId, true);
+        }
+    }
+
+    /**
+     * A user on another node started or stopped typing; only relayed to local subscribers.
+     */
+    public void applyRemoteTyping(Long chatRoomId, Long userId, boolean isTyping) {
+        publishTyping(chatRoomId, userId, isTyping);
+    }
+
+    /**
+     * Users online through a session or heartbeat on this node.
+     */
+    public List<Long> getLocallyOnlineUserIds() {
+        long now = System.currentTimeMillis();
+        List<Long> userIds = new ArrayList<>();
+        presence.forEach((userId, p) -> {
+            if (p.isOnline(now, presenceTtlMs)) {
+                userIds.add(userId);
+            }
+        });
+        return userIds;
+    }
+
+    /**
+     * Online state of each requested user; unknown users are reported offline.
+     */
+    public Map<Long, Map<String, Object>> getPresence(Collection<Long> userIds) {
+        long now = System.currentTimeMillis();
+        Map<Long, Map<String, Object>> result = new LinkedHashMap<>();
+        for (Long userId : userIds) {
+            long lastSeen = lastSeen(userId);
+            Map<String, Object> state = new HashMap<>();
+            state.put("online", isOnline(userId, now));
+            state.put("lastSeen", lastSeen > 0 ? Instant.ofEpochMilli(lastSeen) : null);
+            result.put(userId, state);
+        }
+        return result;
+    }
+
+    @Scheduled(fixedDelayString = "${chat.presence.sweep-ms:5000}")
+    public void expire() {
+        long now = System.currentTimeMillis();
+        for (Long userId : presence.keySet()) {
+            boolean[] wentOffline = {false};
+            // Decided under the entry's lock, so a concurrent touch() either lands first or re-creates it
+            presence.computeIfPresent(userId, (id, p) -> {
+                if (p.isOnline(now, presenceTtlMs)) {
+                    return p;
+                }
+                wentOffline[0] = true;
+                return null;
+            });
+            if (wentOffline[0]) {
+                localPresenceChanged(userId, false);
+            }
+        }
+        for (Long userId : remotePresence.keySet()) {
+            boolean wasOnline = isOnline(userId, now);
+            remotePresence.computeIfPresent(userId, (id, nodes) -> {
+                nodes.values().removeIf(seen -> now - seen >= presenceTtlMs);
+                return nodes.isEmpty() ? null : nodes;
+            });
+            if (wasOnline && !isOnline(userId, now)) {
+                publishPresence(userId, false);
+            }
+        }
+
+        typing.forEach((chatRoomId, roomTyping) -> {
+            roomTyping.entrySet().removeIf(e -> {
+                if (e.getValue() <= now) {
+                    localTypingChanged(chatRoomId, e.getKey(), false);
+                    return true;
+                }
+                return false;
+            });
+            if (roomTyping.isEmpty()) {
+                typing.remove(chatRoomId, roomTyping);
+            }
+        });
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new HashMap<>();
+        metrics.put("trackedUsers", presence.size());
+        metrics.put("remoteUsers", remotePresence.size());
+        metrics.put("sessions", sessionUsers.size());
+        metrics.put("typingRooms", typing.size());
+        return metrics;
+    }
+
+    // Returns true when the user was not online before
+    private boolean touch(Long userId, int newSessions) {
+        long now = System.currentTimeMillis();
+        Presence existing = presence.get(userId);
+        if (existing == null && presence.size() >= maxUsers) {
+            // Over the cap: report online-ness through sessions only, without tracking
+            return false;
+        }
+        boolean[] cameOnline = {false};
+        presence.compute(userId, (id, p) -> {
+            if (p == null) {
+                p = new Presence();
+                cameOnline[0] = true;
+            } else if (!p.isOnline(now, presenceTtlMs)) {
+                cameOnline[0] = true;
+            }
+            p.sessions += newSessions;
+            p.lastSeen = now;
+            return p;
+        });
+        return cameOnline[0];
+    }
+
+    private void clearTyping(Long userId) {
+        typing.forEach((chatRoomId, roomTyping) -> {
+            if (roomTyping.remove(userId) != null) {
+                localTypingChanged(chatRoomId, userId, false);
+            }
+        });
+    }
+
+    // Subscribers only hear about cluster-wide transitions; other nodes always hear about this node's
+    private void localPresenceChanged(Long userId, boolean online) {
+        if (!isOnlineRemotely(userId, System.currentTimeMillis())) {
+            publishPresence(userId, online);
+        }
+        eventPublisher.publishEvent(new PresenceChangedEvent(userId, online));
+    }
+
+    private void localTypingChanged(Long chatRoomId, Long userId, boolean isTyping) {
+        publishTyping(chatRoomId, userId, isTyping);
+        eventPublisher.publishEvent(new TypingChangedEvent(chatRoomId, userId, isTyping));
+    }
+
+    private boolean isOnline(Long userId, long now) {
+        Presence entry = presence.get(userId);
+        return (entry != null && entry.isOnline(now, presenceTtlMs)) || isOnlineRemotely(userId, now);
+    }
+
+    private boolean isOnlineRemotely(Long userId, long now) {
+        Map<String, Long> nodes = remotePresence.get(userId);
+        if (nodes == null) {
+            return false;
+        }
+        for (Long seen : nodes.values()) {
+            if (now - seen < presenceTtlMs) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private long lastSeen(Long userId) {
+        Presence entry = presence.get(userId);
+        long lastSeen = entry != null ? entry.lastSeen : 0L;
+        Map<String, Long> nodes = remotePresence.get(userId);
+        if (nodes != null) {
+            for (Long seen : nodes.values()) {
+                lastSeen = Math.max(lastSeen, seen);
+            }
+        }
+        return lastSeen;
+    }
+
+    private void publishPresence(Long userId, boolean online) {
+        Map<String, Object> payload = new HashMap<>();
+        payload.put("userId", userId);
+        payload.put("online", online);
+        messagingTemplate.convertAndSend("/topic/presence/" + userId, payload);
+    }
+
+    private void publishTyping(Long chatRoomId, Long userId, boolean isTyping) {
+        Map<String, Object> payload = new HashMap<>();
+        payload.put("chatRoomId", chatRoomId);
+        payload.put("userId", userId);
+        payload.put("typing", isTyping);
+        messagingTemplate.convertAndSend("/topic/chatroom/" + chatRoomId + "/typing", payload);
+    }
+
+    // The WebSocket handshake stores the user id as the authentication's details
+    private static Long userIdOf(Principal principal) {
+        if (principal instanceof Authentication authentication && authentication.getDetails() instanceof Long userId) {
+            return userId;
+        }
+        return null;
+    }
+
+    private static class Presence {
+        private volatile int sessions;
+        private volatile long lastSeen;
+
+        boolean isOnline(long now, long ttlMs) {
+            return sessions > 0 || now - lastSeen < ttlMs;
+        }
+    }
+}
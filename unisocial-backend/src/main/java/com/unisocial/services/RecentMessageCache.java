@@ -0,0 +1,281 @@
+package com.unisocial.services;
+
+import com.unisocial.dto.MessageResponse;
+import com.unisocial.events.ChatMessageSentEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/**
+ * Bounded cache of each active room's newest messages, so the latest page,
+ * "messages since" polls and room-list previews of hot rooms are answered
+ * without a query.
+ *
+ * Each cached room holds a contiguous run of the room's newest messages in id
+ * order. Rooms are evicted least recently used first when either the room
+ * count or the estimated memory use goes over its cap.
+ */
+@Service
+public class RecentMessageCache {
+
+    // Rough per-message overhead of the response object, boxed fields and list slot
+    private static final long MESSAGE_OVERHEAD_BYTES = 160;
+
+    private final LinkedHashMap<Long, Room> rooms = new LinkedHashMap<>(16, 0.75f, true);
+    private long approxBytes;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    // Covers the default 50-message page plus its look-ahead row
+    @Value("${chat.cache.messages-per-room:64}")
+    private int messagesPerRoom;
+
+    @Value("${chat.cache.max-rooms:2000}")
+    private int maxRooms;
+
+    @Value("${chat.cache.max-bytes:33554432}")
+    private long maxBytes;
+
+    public int getMessagesPerRoom() {
+        return messagesPerRoom;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onMessageSent(ChatMessageSentEvent event) {
+        append(event.getMessage());
+    }
+
+    /**
+     * Adds a committed message to its room if the room is cached. Uncached rooms
+     * are left alone; their next read loads them from the database.
+     */
+    public synchronized void append(MessageResponse message) {
+        Room room = rooms.get(message.getChatRoomId());
+        if (room == null) {
+            return;
+        }
+        approxBytes += room.add(message);
+        approxBytes -= room.trim(messagesPerRoom);
+        evictIfNeeded();
+    }
+
+    /**
+     * The newest {@code limit} messages of a room, oldest first, loading the room
+     * with {@code loader} (newest first, at most messagesPerRoom) on a miss.
+     * Empty when the cache cannot answer and the caller should query instead.
+     */
+    public Optional<List<MessageResponse>> getLatest(Long chatRoomId, int limit,
+                                                     Supplier<List<MessageResponse>> loader) {
+        if (limit > messagesPerRoom) {
+            return Optional.empty();
+        }
+        Room room = getOrLoad(chatRoomId, loader);
+        synchronized (this) {
+            if (room.messages.size() < limit && !room.complete) {
+                return Optional.empty();
+            }
+            int from = Math.max(0, room.messages.size() - limit);
+            return Optional.of(new ArrayList<>(room.messages.subList(from, room.messages.size())));
+        }
+    }
+
+    /**
+     * Up to {@code limit} messages newer than {@code afterId}, oldest first, if the
+     * cached run reaches back far enough to contain all of them.
+     */
+    public Optional<List<MessageResponse>> getAfter(Long chatRoomId, long afterId, int limit,
+                                                    Supplier<List<MessageResponse>> loader) {
+        Room room = getOrLoad(chatRoomId, loader);
+        synchronized (this) {
+            List<MessageResponse> messages = room.messages;
+            if (!room.complete && (messages.isEmpty() || messages.get(0).getMessageId() > afterId)) {
+                return Optional.empty();
+            }
+            List<MessageResponse> result = new ArrayList<>();
+            for (MessageResponse message : messages) {
+                if (message.getMessageId() > afterId) {
+                    result.add(message);
+                    if (result.size() == limit) {
+                        break;
+                    }
+                }
+            }
+            return Optional.of(result);
+        }
+    }
+
+    /**
+     * The room's whole history if it is short enough to be fully cached.
+     */
+    public synchronized Optional<List<MessageResponse>> getAllIfComplete(Long chatRoomId) {
+        Room room = lookup(chatRoomId);
+        if (room == null || !room.complete) {
+            return Optional.empty();
+        }
+        return Optional.of(new ArrayList<>(room.messages));
+    }
+
+    /**
+     * Newest message of each of the given rooms that is cached. Every cached room
+     * has an entry, with a null value when it has no messages; rooms without an
+     * entry must be looked up by the caller.
+     */
+    public synchronized Map<Long, MessageResponse> getLastMessages(Collection<Long> chatRoomIds) {
+        Map<Long, MessageResponse> lastMessages = new HashMap<>();
+        for (Long chatRoomId : chatRoomIds) {
+            Room room = lookup(chatRoomId);
+            if (room != null) {
+                lastMessages.put(chatRoomId, room.messages.isEmpty() ? null : room.messages.get(room.messages.size() - 1));
+            }
+        }
+        return lastMessages;
+    }
+
+    /**
+     * Drops every room, e.g. after cross-node notifications may have been missed.
+     */
+    public synchronized void clear() {
+        rooms.clear();
+        approxBytes = 0;
+    }
+
+    public synchronized Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new HashMap<>();
+        metrics.put("rooms", rooms.size());
+        metrics.put("approxBytes", approxBytes);
+        metrics.put("hits", hits);
+        metrics.put("misses", misses);
+        metrics.put("evictions", evictions);
+        return metrics;
+    }
+
+    // Caller holds the lock; counts a hit or miss. Rooms still loading count as misses
+    private Room lookup(Long chatRoomId) {
+        Room room = rooms.get(chatRoomId);
+        if (room != null && room.loaded) {
+            hits++;
+            return room;
+        }
+        misses++;
+        return null;
+    }
+
+    private Room getOrLoad(Long chatRoomId, Supplier<List<MessageResponse>> loader) {
+        synchronized (this) {
+            Room room = lookup(chatRoomId);
+            if (room != null) {
+                return room;
+            }
+            // Appends that commit while the query runs are collected here and merged below
+            rooms.putIfAbsent(chatRoomId, new Room());
+        }
+
+        List<MessageResponse> newestFirst;
+        try {
+            newestFirst = loader.get();
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                Room pending = rooms.remove(chatRoomId);
+                if (pending != null) {
+                    approxBytes -= pending.bytes;
+                }
+            }
+            throw e;
+        }
+
+        synchronized (this) {
+            Room room = rooms.get(chatRoomId);
+            boolean cached = room != null;
+            if (!cached) {
+                // Evicted while loading: answer this read without caching, appends may have been missed
+                room = new Room();
+            }
+            if (room.loaded) {
+                // Another reader finished loading first
+                return room;
+            }
+            long added = 0;
+            for (MessageResponse message : newestFirst) {
+                added += room.add(message);
+            }
+            room.complete = newestFirst.size() < messagesPerRoom;
+            added -= room.trim(messagesPerRoom);
+            room.loaded = true;
+            if (cached) {
+                approxBytes += added;
+                evictIfNeeded();
+            }
+            return room;
+        }
+    }
+
+    // Caller holds the lock
+    private void evictIfNeeded() {
+        Iterator<Map.Entry<Long, Room>> it = rooms.entrySet().iterator();
+        while ((rooms.size() > maxRooms || approxBytes > maxBytes) && it.hasNext()) {
+            Room eldest = it.next().getValue();
+            approxBytes -= eldest.bytes;
+            it.remove();
+            evictions++;
+        }
+    }
+
+    private static long estimateBytes(MessageResponse message) {
+        long chars = (message.getContent() != null ? message.getContent().length() : 0)
+                + (message.getSenderName() != null ? message.getSenderName().length() : 0);
+        return MESSAGE_OVERHEAD_BYTES + 2 * chars;
+    }
+
+    /**
+     * Messages of one room in ascending id order. Guarded by the cache's lock.
+     */
+    private static class Room {
+        private final List<MessageResponse> messages = new ArrayList<>();
+        // True when no messages exist older than the first one held
+        private boolean complete;
+        // False while the first load from the database is in flight
+        private boolean loaded;
+        private long bytes;
+
+        // Inserts in id order, ignoring duplicates; returns the bytes added
+        long add(MessageResponse message) {
+            int i = messages.size();
+            while (i > 0 && messages.get(i - 1).getMessageId() > message.getMessageId()) {
+                i--;
+            }
+            if (i > 0 && messages.get(i - 1).getMessageId().equals(message.getMessageId())) {
+                return 0;
+            }
+            messages.add(i, message);
+            long size = estimateBytes(message);
+            bytes += size;
+            return size;
+        }
+
+        // Drops the oldest messages over capacity; returns the bytes released
+        long trim(int capacity) {
+            long released = 0;
+            int excess = messages.size() - capacity;
+            if (excess > 0) {
+                for (MessageResponse message : messages.subList(0, excess)) {
+                    released += estimateBytes(message);
+                }
+                messages.subList(0, excess).clear();
+                complete = false;
+            }
+            bytes -= released;
+            return released;
+        }
+    }
+}
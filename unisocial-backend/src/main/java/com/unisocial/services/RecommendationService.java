@@ -20,17 +20,20 @@ public class RecommendationService {
     private final ClubRepository clubRepository;
     private final EventRepository eventRepository;
     private final UserRepository userRepository;
+    private final PostAuthorResolver postAuthorResolver;
 
     public RecommendationService(UserInteractionRepository interactionRepository,
                                  PostRepository postRepository,
                                  ClubRepository clubRepository,
                                  EventRepository eventRepository,
-                                 UserRepository userRepository) {
+                                 UserRepository userRepository,
+                                 PostAuthorResolver postAuthorResolver) {
         this.interactionRepository = interactionRepository;
         this.postRepository = postRepository;
         this.clubRepository = clubRepository;
         this.eventRepository = eventRepository;
         this.userRepository = userRepository;
+        this.postAuthorResolver = postAuthorResolver;
     }
 
     public List<PostResponse> getRecommendedPosts(Long userId) {
@@ -46,23 +49,18 @@ public class RecommendationService {
 
         // Posts authored by top clubs' admins/users is not directly modeled, so fallback to recent posts
         // by mapping authorId if that corresponds to users from those clubs (not available). Return recent.
-        return postRepository.findAllByOrderByCreatedAtDesc().stream()
+        List<Post> posts = postRepository.findAllByOrderByCreatedAtDesc().stream()
                 .limit(20)
+                .collect(Collectors.toList());
+        PostAuthorResolver.Authors authors = postAuthorResolver.resolve(posts);
+        return posts.stream()
                 .map(p -> {
-                    String authorName = "Unknown User";
-                    String authorDpUrl = null;
-                    if (p.getAuthor() != null) {
-                        User author = userRepository.findById(p.getAuthor()).orElse(null);
-                        if (author != null) {
-                            authorName = author.getName();
-                            authorDpUrl = author.getDpUrl();
-                        }
-                    }
+                    String authorName = authors.getName(p);
                     return new PostResponse(
                         p.getPostId(),
                         p.getAuthor(),
-                        authorName,
-                        authorDpUrl,
+                        authorName != null ? authorName : "Unknown User",
+                        authors.getDpUrl(p),
                         p.getAuthorType(),
                         p.getContentText(),
                         p.getMediaUrl(),
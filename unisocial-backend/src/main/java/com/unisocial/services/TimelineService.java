@@ -0,0 +1,264 @@
+package com.unisocial.services;
+
+import com.unisocial.events.PostCreatedEvent;
+import com.unisocial.models.AuthorType;
+import com.unisocial.models.MembershipStatus;
+import com.unisocial.repositories.ClubMembershipRepository;
+import com.unisocial.repositories.PostRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-user home timelines built by fan-out on write.
+ *
+ * A user's timeline holds the ids of posts by the clubs they are an approved
+ * member of, and by their club peers (approved members of the same clubs).
+ * New posts are pushed into the bounded id list of every member whose
+ * timeline is cached, so a read is a slice of a precomputed id list. Posts
+ * created on other nodes arrive through ChatClusterBridge. Timelines are only
+ * kept for recently active users and are rebuilt once older than
+ * feed.timeline.ttl-ms, which bounds how long a missed notification or a
+ * membership change made on another node can go unnoticed.
+ */
+@Service
+public class TimelineService {
+
+    private final PostRepository postRepository;
+    private final ClubMembershipRepository clubMembershipRepository;
+
+    // Insertion-ordered; reads move a timeline to the end, so the head is least recently read
+    private final LinkedHashMap<Long, Timeline> timelines = new LinkedHashMap<>();
+
+    private final AtomicLong fanOutWrites = new AtomicLong();
+    private final AtomicLong rebuilds = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    @Value("${feed.timeline.capacity:500}")
+    private int capacity;
+
+    @Value("${feed.timeline.max-users:10000}")
+    private int maxUsers;
+
+    @Value("${feed.timeline.ttl-ms:60000}")
+    private long ttlMs;
+
+    public TimelineService(PostRepository postRepository, ClubMembershipRepository clubMembershipRepository) {
+        this.postRepository = postRepository;
+        this.clubMembershipRepository = clubMembershipRepository;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPostCreated(PostCreatedEvent event) {
+        List<Long> recipients;
+        if (event.getAuthorType() == AuthorType.CLUB) {
+            recipients = clubMembershipRepository.findUserIdsByClubIdAndStatus(event.getAuthorId(), MembershipStatus.APPROVED);
+        } else {
+            recipients = new ArrayList<>(clubMembershipRepository.findPeerUserIds(event.getAuthorId(), MembershipStatus.APPROVED));
+            recipients.add(event.getAuthorId());
+        }
+        List<Timeline> targets = new ArrayList<>();
+        synchronized (timelines) {
+            for (Long userId : recipients) {
+                Timeline timeline = timelines.get(userId);
+                if (timeline != null) {
+                    targets.add(timeline);
+                }
+            }
+        }
+        for (Timeline timeline : targets) {
+            timeline.push(event.getPostId());
+        }
+        fanOutWrites.addAndGet(targets.size());
+    }
+
+    /**
+     * Post ids of one timeline page, newest first. The cursor is the opaque
+     * position returned as nextCursor of the previous page.
+     */
+    public TimelinePage getPage(Long userId, String before, int limit) {
+        Timeline timeline = getOrRebuild(userId);
+        long beforeId = before != null && !before.isEmpty() ? decodeCursor(before) : Long.MAX_VALUE;
+        List<Long> postIds = timeline.slice(beforeId, limit + 1);
+        String nextCursor = null;
+        if (postIds.size() > limit) {
+            postIds = postIds.subList(0, limit);
+            nextCursor = encodeCursor(postIds.get(limit - 1));
+        }
+        return new TimelinePage(postIds, nextCursor);
+    }
+
+    /**
+     * Drops a cached timeline, e.g. after the user's club memberships changed.
+     */
+    public void invalidate(Long userId) {
+        synchronized (timelines) {
+            timelines.remove(userId);
+        }
+    }
+
+    /**
+     * Drops every cached timeline, e.g. after post notifications may have been missed.
+     */
+    public void invalidateAll() {
+        synchronized (timelines) {
+            timelines.clear();
+        }
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new HashMap<>();
+        synchronized (timelines) {
+            metrics.put("cachedTimelines", timelines.size());
+        }
+        metrics.put("fanOutWrites", fanOutWrites.get());
+        metrics.put("rebuilds", rebuilds.get());
+        metrics.put("evictions", evictions.get());
+        return metrics;
+    }
+
+    private Timeline getOrRebuild(Long userId) {
+        long now = System.currentTimeMillis();
+        Timeline placeholder;
+        synchronized (timelines) {
+            Timeline timeline = timelines.remove(userId);
+            if (timeline != null && now - timeline.createdAt <= ttlMs) {
+                timelines.put(userId, timeline);
+                if (timeline.isLoaded()) {
+                    return timeline;
+                }
+                // Another reader is rebuilding it; serve this read from an uncached load
+                placeholder = null;
+            } else {
+                // Registered before loading, so posts created during the load are pushed into it
+                placeholder = new Timeline(capacity, now);
+                timelines.put(userId, placeholder);
+                while (timelines.size() > maxUsers) {
+                    Long eldest = timelines.keySet().iterator().next();
+                    timelines.remove(eldest);
+                    evictions.incrementAndGet();
+                }
+            }
+        }
+
+        Timeline target = placeholder != null ? placeholder : new Timeline(capacity, now);
+        try {
+            load(userId, target);
+        } catch (RuntimeException e) {
+            if (placeholder != null) {
+                synchronized (timelines) {
+                    timelines.remove(userId, placeholder);
+                }
+            }
+            throw e;
+        }
+        return target;
+    }
+
+    // Loads the newest ids from the author index outside the map lock
+    private void load(Long userId, Timeline timeline) {
+        List<Long> clubIds = clubMembershipRepository.findClubIdsByUserIdAndStatus(userId, MembershipStatus.APPROVED);
+        List<Long> userIds = new ArrayList<>(clubMembershipRepository.findPeerUserIds(userId, MembershipStatus.APPROVED));
+        userIds.add(userId);
+        List<Long> newestFirst = postRepository.findTimelinePostIds(AuthorType.CLUB, clubIds, AuthorType.USER, userIds,
+                PageRequest.of(0, capacity));
+        timeline.load(newestFirst);
+        rebuilds.incrementAndGet();
+    }
+
+    private static String encodeCursor(long postId) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(Long.toString(postId).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static long decodeCursor(String cursor) {
+        try {
+            return Long.parseLong(new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8));
+        } catch (RuntimeException e) {
+            throw new RuntimeException("Invalid cursor: " + cursor);
+        }
+    }
+
+    public static class TimelinePage {
+        private final List<Long> postIds;
+        private final String nextCursor;
+
+        TimelinePage(List<Long> postIds, String nextCursor) {
+            this.postIds = postIds;
+            this.nextCursor = nextCursor;
+        }
+
+        public List<Long> getPostIds() { return postIds; }
+        public String getNextCursor() { return nextCursor; }
+    }
+
+    /**
+     * Bounded set of post ids kept in ascending order; when full, the oldest is
+     * dropped. Being a sorted set rather than an insertion-ordered buffer, a push
+     * that races a rebuild lands in the right place and is never duplicated,
+     * whichever of the two runs first.
+     */
+    private static class Timeline {
+        private final long[] postIds;
+        private final long createdAt;
+        private int size;
+        private boolean loaded;
+
+        Timeline(int capacity, long createdAt) {
+            this.postIds = new long[capacity];
+            this.createdAt = createdAt;
+        }
+
+        synchronized void push(long postId) {
+            int found = Arrays.binarySearch(postIds, 0, size, postId);
+            if (found >= 0) {
+                return;
+            }
+            int insertAt = -found - 1;
+            if (size == postIds.length) {
+                if (insertAt == 0) {
+                    // Older than everything kept
+                    return;
+                }
+                System.arraycopy(postIds, 1, postIds, 0, insertAt - 1);
+                postIds[insertAt - 1] = postId;
+                return;
+            }
+            System.arraycopy(postIds, insertAt, postIds, insertAt + 1, size - insertAt);
+            postIds[insertAt] = postId;
+            size++;
+        }
+
+        synchronized void load(List<Long> newestFirst) {
+            for (Long postId : newestFirst) {
+                push(postId);
+            }
+            loaded = true;
+        }
+
+        synchronized boolean isLoaded() {
+            return loaded;
+        }
+
+        // Newest first, only ids older than beforeId
+        synchronized List<Long> slice(long beforeId, int limit) {
+            int found = Arrays.binarySearch(postIds, 0, size, beforeId);
+            int from = (found >= 0 ? found : -found - 1) - 1;
+            List<Long> result = new ArrayList<>(Math.min(limit, from + 1));
+            for (int i = from; i >= 0 && result.size() < limit; i--) {
+                result.add(postIds[i]);
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package com.unisocial.services;
+
+import com.unisocial.UnisocialBackendApplication;
+import com.unisocial.dto.MessageResponse;
+import com.unisocial.models.Role;
+import com.unisocial.models.User;
+import com.unisocial.repositories.UserRepository;
+import com.unisocial.security.JwtUtils;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.simp.stomp.StompFrameHandler;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.messaging.simp.stomp.StompSessionHandlerAdapter;
+import org.springframework.web.socket.WebSocketHttpHeaders;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.lang.reflect.Type;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Two application contexts against one Postgres database, standing in for two
+ * nodes behind the load balancer: a message sent on node A must reach a STOMP
+ * subscriber connected to node B.
+ */
+@Testcontainers
+class ChatClusterBridgeIntegrationTest {
+
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    private static ConfigurableApplicationContext nodeA;
+    private static ConfigurableApplicationContext nodeB;
+
+    @BeforeAll
+    static void startNodes() throws InterruptedException {
+        // One after the other, so the two schema updates do not race
+        nodeA = startNode("a");
+        nodeB = startNode("b");
+        awaitListeners(2);
+    }
+
+    @AfterAll
+    static void stopNodes() {
+        if (nodeB != null) {
+            nodeB.close();
+        }
+        if (nodeA != null) {
+            nodeA.close();
+        }
+    }
+
+    @Test
+    void messageSentOnOneNodeReachesSubscriberOnAnother() throws Exception {
+        UserRepository users = nodeA.getBean(UserRepository.class);
+        User sender = users.save(newUser());
+        User recipient = users.save(newUser());
+        Long chatRoomId = nodeA.getBean(ChatService.class)
+                .createPrivateChat(sender.getUserId(), recipient.getUserId()).getChatRoomId();
+
+        BlockingQueue<MessageResponse> received = new LinkedBlockingQueue<>();
+        WebSocketStompClient stompClient = new WebSocketStompClient(new StandardWebSocketClient());
+        stompClient.setMessageConverter(new MappingJackson2MessageConverter());
+        StompHeaders connectHeaders = new StompHeaders();
+        connectHeaders.add("Authorization", "Bearer " +
+                nodeB.getBean(JwtUtils.class).generateToken(recipient.getEmail(), Map.of()));
+        StompSession session = stompClient.connectAsync(
+                "ws://localhost:" + port(nodeB) + "/ws/chat/websocket",
+                new WebSocketHttpHeaders(), connectHeaders, new StompSessionHandlerAdapter() {})
+                .get(10, TimeUnit.SECONDS);
+        try {
+            StompSession.Subscription subscription = session.subscribe("/topic/chatroom/" + chatRoomId,
+                    new StompFrameHandler() {
+                        @Override
+                        public Type getPayloadType(StompHeaders headers) {
+                            return MessageResponse.class;
+                        }
+
+                        @Override
+                        public void handleFrame(StompHeaders headers, Object payload) {
+                            received.add((MessageResponse) payload);
+                        }
+                    });
+            assertNotNull(subscription);
+            // Let node B register the subscription before anything is published
+            Thread.sleep(500);
+
+            MessageResponse sent = nodeA.getBean(ChatService.class)
+                    .sendMessage(chatRoomId, sender.getUserId(), "hello from node A");
+
+            MessageResponse delivered = received.poll(10, TimeUnit.SECONDS);
+            assertNotNull(delivered, "message was not delivered to the subscriber on node B");
+            assertEquals(sent.getMessageId(), delivered.getMessageId());
+            assertEquals("hello from node A", delivered.getContent());
+            assertTrue(((Number) nodeB.getBean(ChatClusterBridge.class).getMetrics().get("received")).longValue() >= 1);
+        } finally {
+            session.disconnect();
+            stompClient.stop();
+        }
+    }
+
+    private static ConfigurableApplicationContext startNode(String name) {
+        return new SpringApplicationBuilder(UnisocialBackendApplication.class)
+                .properties(
+                        "server.port=0",
+                        "spring.datasource.url=" + postgres.getJdbcUrl(),
+                        "spring.datasource.username=" + postgres.getUsername(),
+                        "spring.datasource.password=" + postgres.getPassword(),
+                        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.PostgreSQLDialect",
+                        "spring.jpa.show-sql=false",
+                        "file.upload-dir=target/test-uploads-" + name,
+                        "chat.archive.dir=target/test-chat-archive",
+                        "chat.cluster.poll-timeout-ms=100")
+                .run();
+    }
+
+    // Each bridge's LISTEN connection shows up in pg_stat_activity once it is listening
+    private static void awaitListeners(int expected) throws InterruptedException {
+        JdbcTemplate jdbcTemplate = nodeA.getBean(JdbcTemplate.class);
+        long deadline = System.currentTimeMillis() + 10000;
+        while (System.currentTimeMillis() < deadline) {
+            Integer listening = jdbcTemplate.queryForObject(
+                    "SELECT COUNT(*) FROM pg_stat_activity WHERE query LIKE 'LISTEN %'", Integer.class);
+            if (listening != null && listening >= expected) {
+                return;
+            }
+            Thread.sleep(100);
+        }
+        throw new IllegalStateException("Cluster listeners did not start");
+    }
+
+    private static int port(ConfigurableApplicationContext context) {
+        return Integer.parseInt(context.getEnvironment().getProperty("local.server.port"));
+    }
+
+    private static User newUser() {
+        String unique = UUID.randomUUID().toString().substring(0, 8);
+        return new User("REG" + unique, unique + "@example.com", "Node Tester " + unique, "password123", Role.USER);
+    }
+}
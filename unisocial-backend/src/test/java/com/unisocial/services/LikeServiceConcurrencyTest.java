@@ -0,0 +1,113 @@
+package com.unisocial.services;
+
+import com.unisocial.models.AuthorType;
+import com.unisocial.models.Post;
+import com.unisocial.models.Role;
+import com.unisocial.models.User;
+import com.unisocial.repositories.LikeRepository;
+import com.unisocial.repositories.PostRepository;
+import com.unisocial.repositories.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.testcontainers.containers.MySQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs against MySQL, where the like insert cannot rely on ON CONFLICT.
+ */
+@Testcontainers
+@SpringBootTest(properties = {
+        "file.upload-dir=target/test-uploads",
+        "chat.archive.dir=target/test-chat-archive"
+})
+class LikeServiceConcurrencyTest {
+
+    private static final int THREADS = 16;
+
+    @Container
+    @ServiceConnection
+    static MySQLContainer<?> mysql = new MySQLContainer<>("mysql:8.0");
+
+    @Autowired
+    private LikeService likeService;
+
+    @Autowired
+    private LikeCounterBuffer likeCounterBuffer;
+
+    @Autowired
+    private LikeRepository likeRepository;
+
+    @Autowired
+    private PostRepository postRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Test
+    void concurrentLikesFromOneUserStoreOneLike() throws Exception {
+        User user = saveUser();
+        Post post = savePost(user);
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Boolean>> results = new ArrayList<>();
+        try {
+            for (int i = 0; i < THREADS; i++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return likeService.likePost(user.getUserId(), post.getPostId()).isLikedByCurrentUser();
+                }));
+            }
+            start.countDown();
+            for (Future<Boolean> result : results) {
+                assertTrue(result.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(1, likeRepository.countByPostPostId(post.getPostId()));
+        assertEquals(1, likeService.countLikes(post.getPostId(), user.getUserId()).getTotalLikes());
+        likeCounterBuffer.flush();
+        assertEquals(1L, postRepository.findLikeCount(post.getPostId()));
+    }
+
+    @Test
+    void likingMissingPostFails() {
+        User user = saveUser();
+        long missingPostId = Long.MAX_VALUE;
+
+        assertThrows(RuntimeException.class, () -> likeService.likePost(user.getUserId(), missingPostId));
+        assertEquals(0, likeRepository.countByPostPostId(missingPostId));
+        assertEquals(0, likeCounterBuffer.pendingDelta(missingPostId));
+    }
+
+    private User saveUser() {
+        String unique = UUID.randomUUID().toString().substring(0, 8);
+        return userRepository.save(new User("REG" + unique, unique + "@example.com", "Like Tester",
+                "password123", Role.USER));
+    }
+
+    private Post savePost(User author) {
+        Post post = new Post();
+        post.setAuthorType(AuthorType.USER);
+        post.setAuthor(author.getUserId());
+        post.setContentText("Concurrent like test");
+        return postRepository.save(post);
+    }
+}